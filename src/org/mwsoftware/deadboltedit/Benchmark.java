@@ -0,0 +1,314 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * Benchmark.java - Micro-benchmarks for DeadboltEdit.                      *
+ *                                                                          *
+ * Run from the project directory (after "make class"):                     *
+ *   make bench                                                             *
+ *   java -cp classes:. org.mwsoftware.deadboltedit.Benchmark [name] [args] *
+ *                                                                          *
+ * Benchmarks:                                                              *
+ *   kdf [target ms] - PBKDF2-HMAC-SHA256 iterations (hashes) per second,   *
+ *                     and the iteration count calibrated for the target    *
+ *                     time (default: kdf.target.ms from defaultSettings)   *
+ *   editor [MB|file] - Styled and plain text editor modes: time to load    *
+ *                      the text (64K chunks, as a file is loaded), heap    *
+ *                      used by the Document and its views, time to apply   *
+ *                      the tab size setting and to make 1000 edits.        *
+ *                      The text is generated (default 8 MB) or read        *
+ *                      from a plain text file.                             *
+ *   replace [count]  - Latency of one Find/Replace replacement, through    *
+ *                      the Document (as TextSearcher does) and through     *
+ *                      the system clipboard and paste() (as it used to;    *
+ *                      needs a display, the clipboard is restored after).  *
+ *                      Also the time for Replace All of count matches      *
+ *                      (default 100000).                                   *
+ *                                                                          *
+ * With no name, all benchmarks are run with their defaults.  The results   *
+ * are machine dependent; compare them on the same machine or use them to   *
+ * size settings for a machine.                                             *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.*;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import java.util.Random;
+import javax.swing.JTextArea;
+import javax.swing.JTextPane;
+import javax.swing.text.*;
+
+public class Benchmark {
+    //
+    //   --- Constants, package scope ---
+    protected static final int RUNS = 5;
+    //
+    private static final int KDF_BENCH_ITERATIONS = 200000;
+    private static final int EDITOR_BENCH_MB = 8;
+    private static final int EDITOR_BENCH_CHUNK = 64 * 1024;
+    private static final int EDITOR_BENCH_EDITS = 1000;
+    private static final int REPLACE_BENCH_COUNT = 100000;
+    private static final int REPLACE_BENCH_SINGLE = 1000;       // Replacements timed one at a time
+    //
+    //   --- End Constants ---
+
+    public static void main( String[] args ) throws Exception {
+        String name = ( args.length > 0 ) ? args[0] : "all";
+        printMachine();
+        boolean all = name.equals( "all" );
+        boolean ran = false;
+        if ( all || name.equals( "kdf" ) ) {
+            benchKdf( (all || args.length < 2) ? -1 : Integer.parseInt( args[1] ) );
+            ran = true;
+        }
+        if ( all || name.equals( "editor" ) ) {
+            benchEditor( (all || args.length < 2) ? Integer.toString( EDITOR_BENCH_MB ) : args[1] );
+            ran = true;
+        }
+        if ( all || name.equals( "replace" ) ) {
+            benchReplace( (all || args.length < 2) ? REPLACE_BENCH_COUNT : Integer.parseInt( args[1] ) );
+            ran = true;
+        }
+        if ( !ran ) {
+            System.err.println("Unknown benchmark: " + name );
+            System.exit( 1 );
+        }
+    }
+
+    // benchKdf() - PBKDF2-HMAC-SHA256 iterations per second, best and median of
+    //   RUNS, and the iteration count calibrateIterations() gives for targetMs
+    //   (-1 for the kdf.target.ms default setting).
+    private static void benchKdf( int targetMs ) throws GeneralSecurityException {
+        if ( targetMs < 0 ) {
+            targetMs = ChunkCipher.DEFAULT_KDF_TARGET_MS;
+            String setting = PgmUtils.loadDefaultSettings().getProperty( "kdf.target.ms" );
+            if ( setting != null ) {
+                targetMs = Integer.parseInt( setting );
+            }
+        }
+        System.out.println("kdf: PBKDF2-HMAC-SHA256, " + KDF_BENCH_ITERATIONS + " iterations, " + RUNS + " runs");
+        double[] rates = new double[RUNS];
+        for (int i=0; i<RUNS; i++) {
+            rates[i] = ChunkCipher.kdfRate( KDF_BENCH_ITERATIONS );
+        }
+        Arrays.sort( rates );
+        System.out.println("  hashes/sec:  best " + Math.round( rates[RUNS - 1] )
+            + ", median " + Math.round( rates[RUNS / 2] ) );
+        int iterations = ChunkCipher.calibrateIterations( targetMs );
+        long startTime = System.nanoTime();
+        ChunkCipher.deriveKey( "benchmark".toCharArray(), ChunkCipher.newSalt(), iterations );
+        long elapsedMs = (System.nanoTime() - startTime) / 1000000;
+        System.out.println("  calibrated:  " + iterations + " iterations for " + targetMs
+            + " ms target (measured " + elapsedMs + " ms)");
+    }
+
+    // benchEditor() - Compare the styled (JTextPane) and plain text (JTextArea)
+    //   editor modes on the text from source, a size in MB of generated text
+    //   or the name of a plain text file.  Times are the median of RUNS.
+    private static void benchEditor( String source ) throws Exception {
+        String text;
+        if ( source.matches( "[0-9]+" ) ) {
+            text = generateText( Integer.parseInt( source ) * 1024 * 1024 );
+        }
+        else {
+            text = readTextFile( new File( source ) );
+        }
+        int lines = 1;
+        for (int i=0; i<text.length(); i++) {
+            if ( text.charAt( i ) == '\n' ) {
+                lines++;
+            }
+        }
+        System.out.println("editor: " + text.length() + " chars, " + lines + " lines, " + RUNS + " runs");
+        benchEditorMode( false, text );
+        benchEditorMode( true, text );
+    }
+
+    private static void benchEditorMode( boolean plainTextMode, String text ) throws BadLocationException {
+        long[] loadMs = new long[RUNS];
+        long[] tabMs = new long[RUNS];
+        long[] editMs = new long[RUNS];
+        long heap = 0;
+        for (int run=0; run<RUNS; run++) {
+            long baseHeap = usedHeap();
+            // Set up as DeadboltEdit.createEditorPane() does
+            JTextComponent pane;
+            if ( plainTextMode ) {
+                pane = new JTextArea( new PlainEditorDocument() );
+            }
+            else {
+                pane = new JTextPane();
+                ((JTextPane) pane).setEditorKit( new StyledTextEditorKit() );
+            }
+            pane.setFont( PgmUtils.FALLBACK_DEFAULT_TEXT_FONT );
+            Document doc = pane.getDocument();
+            long startTime = System.nanoTime();
+            for (int offset=0; offset<text.length(); offset+=EDITOR_BENCH_CHUNK) {
+                int end = Math.min( offset + EDITOR_BENCH_CHUNK, text.length() );
+                doc.insertString( doc.getLength(), text.substring( offset, end ), null );
+            }
+            loadMs[run] = (System.nanoTime() - startTime) / 1000000;
+            heap = usedHeap() - baseHeap;
+
+            startTime = System.nanoTime();
+            if ( plainTextMode ) {
+                ((JTextArea) pane).setTabSize( 4 );
+            }
+            else {
+                doc.putProperty( PlainDocument.tabSizeAttribute, Integer.valueOf( 4 ) );
+                StyledTextEditorKit.tabSizeChanged( pane );
+            }
+            tabMs[run] = (System.nanoTime() - startTime) / 1000000;
+
+            Random random = new Random( run );
+            startTime = System.nanoTime();
+            for (int i=0; i<EDITOR_BENCH_EDITS; i++) {
+                int offset = random.nextInt( doc.getLength() );
+                if ( (i % 4) == 3 ) {
+                    doc.remove( offset, 1 );
+                }
+                else {
+                    doc.insertString( offset, ((i % 8) == 0) ? "\n" : "x", null );
+                }
+            }
+            editMs[run] = (System.nanoTime() - startTime) / 1000000;
+        }
+        Arrays.sort( loadMs );
+        Arrays.sort( tabMs );
+        Arrays.sort( editMs );
+        System.out.println("  " + (plainTextMode ? "plain: " : "styled:") + " load " + loadMs[RUNS / 2]
+            + " ms, heap " + (heap / (1024 * 1024)) + " MB, tab size " + tabMs[RUNS / 2] + " ms, "
+            + EDITOR_BENCH_EDITS + " edits " + editMs[RUNS / 2] + " ms");
+    }
+
+    // benchReplace() - Per-replacement latency of Find/Replace, median of
+    //   REPLACE_BENCH_SINGLE Find Next + Replace, through the Document and
+    //   through the clipboard, and the time for Replace All of count matches.
+    private static void benchReplace( int count ) throws Exception {
+        System.out.println("replace: " + count + " matches, " + REPLACE_BENCH_SINGLE + " single replacements, "
+            + RUNS + " runs");
+        StringBuilder text = new StringBuilder();
+        for (int i=0; i<count; i++) {
+            text.append( "Line " ).append( i ).append( ": find the needle here\n" );
+        }
+        long[] replaceAllMs = new long[RUNS];
+        double documentUs = 0;
+        double clipboardUs = -1;
+        for (int run=0; run<RUNS; run++) {
+            JTextPane pane = new JTextPane();
+            pane.setEditorKit( new StyledTextEditorKit() );
+            pane.getDocument().insertString( 0, text.toString(), null );
+            TextSearcher searcher = new TextSearcher( pane );
+            documentUs = replaceLatency( pane, searcher, false );
+            if ( !java.awt.GraphicsEnvironment.isHeadless() ) {
+                clipboardUs = replaceLatency( pane, searcher, true );
+            }
+            long startTime = System.nanoTime();
+            searcher.replaceAll( "needle", "pin", true );
+            replaceAllMs[run] = (System.nanoTime() - startTime) / 1000000;
+        }
+        Arrays.sort( replaceAllMs );
+        System.out.println("  replace:     document " + String.format( "%.1f", documentUs ) + " us, clipboard "
+            + (clipboardUs < 0 ? "n/a (headless)" : String.format( "%.1f", clipboardUs ) + " us") );
+        System.out.println("  replace all: " + replaceAllMs[RUNS / 2] + " ms");
+    }
+
+    // replaceLatency() - Median microseconds of REPLACE_BENCH_SINGLE
+    //   replacements, each a Find Next and a replace of the match found
+    private static double replaceLatency( JTextComponent pane, TextSearcher searcher, boolean clipboard ) {
+        java.awt.datatransfer.Clipboard systemClipboard = null;
+        java.awt.datatransfer.Transferable saved = null;
+        if ( clipboard ) {
+            systemClipboard = java.awt.Toolkit.getDefaultToolkit().getSystemClipboard();
+            saved = systemClipboard.getContents( null );
+        }
+        long[] ns = new long[REPLACE_BENCH_SINGLE];
+        searcher.findMatchCase( "needle" );
+        for (int i=0; i<REPLACE_BENCH_SINGLE; i++) {
+            long startTime = System.nanoTime();
+            if ( clipboard ) {
+                // The replace TextSearcher used to do
+                java.awt.datatransfer.StringSelection selection = new java.awt.datatransfer.StringSelection( "pin" );
+                systemClipboard.setContents( selection, selection );
+                pane.paste();
+            }
+            else {
+                searcher.replaceSelectedString( "pin" );
+            }
+            ns[i] = System.nanoTime() - startTime;
+            searcher.findNextMatchCase();
+        }
+        if ( saved != null ) {
+            systemClipboard.setContents( saved, null );
+        }
+        Arrays.sort( ns );
+        return ns[ns.length / 2] / 1000.0;
+    }
+
+    // generateText() - About size chars of text lines, with some tabs
+    private static String generateText( int size ) {
+        StringBuilder text = new StringBuilder( size + 100 );
+        Random random = new Random( 1 );
+        int lineNumber = 0;
+        while ( text.length() < size ) {
+            lineNumber++;
+            if ( random.nextInt( 4 ) == 0 ) {
+                text.append( '\t' );
+            }
+            text.append( "Line " ).append( lineNumber ).append( ':' );
+            int words = random.nextInt( 16 );
+            for (int i=0; i<words; i++) {
+                text.append( (i % 5 == 4) ? '\t' : ' ' ).append( "word" ).append( random.nextInt( 1000 ) );
+            }
+            text.append( '\n' );
+        }
+        return text.toString();
+    }
+
+    private static String readTextFile( File file ) throws IOException {
+        Reader in = new InputStreamReader( new FileInputStream( file ), "UTF-8" );
+        try {
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[EDITOR_BENCH_CHUNK];
+            int n;
+            while ( (n = in.read( buffer )) > 0 ) {
+                text.append( buffer, 0, n );
+            }
+            return text.toString();
+        } finally {
+            in.close();
+        }
+    }
+
+    // usedHeap() - Heap in use, after garbage collection
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i=0; i<3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static void printMachine() {
+        System.out.println("Java " + System.getProperty( "java.version" ) + ", "
+            + System.getProperty( "os.name" ) + " " + System.getProperty( "os.arch" ) + ", "
+            + Runtime.getRuntime().availableProcessors() + " cores");
+    }
+}
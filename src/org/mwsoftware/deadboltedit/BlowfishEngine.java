@@ -0,0 +1,81 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * BlowfishEngine.java - Blowfish-CBC engine for legacy (version 0 and 1)   *
+ *                     DeadboltEdit encrypted files.                        *
+ *                                                                          *
+ * The payload of a legacy file is a single record: the OpenSSL salted      *
+ * envelope encrypted with Blowfish-CBC (128-bit key), the key and IV       *
+ * derived from the password and salt with EVP_BytesToKey() (see            *
+ * OpenSSLEnvelope).  Record numbers are ignored.  Files are no longer      *
+ * written with this engine.                                                *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.Cipher;
+import javax.crypto.spec.IvParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class BlowfishEngine implements CipherEngine {
+    //
+    //   --- Constants, package scope ---
+    private static final String TRANSFORMATION = "Blowfish/CBC/PKCS5Padding";
+    private static final int KEY_BYTES = 16;
+    private static final int IV_BYTES = 8;
+    //
+    //   --- End Constants ---
+
+    // salt is from the envelope prefix
+    public BlowfishEngine( char[] password, byte[] salt ) throws GeneralSecurityException {
+        byte[] keyAndIV = OpenSSLEnvelope.bytesToKey( password, salt, KEY_BYTES + IV_BYTES );
+        try {
+            this.key = new SecretKeySpec( keyAndIV, 0, KEY_BYTES, "Blowfish" );
+            this.iv = new IvParameterSpec( keyAndIV, KEY_BYTES, IV_BYTES );
+        } finally {
+            Arrays.fill( keyAndIV, (byte) 0 );
+        }
+    }
+
+    public String getName() {
+        return "Blowfish-CBC (legacy OpenSSL envelope)";
+    }
+
+    public Cipher createCipher( int mode, int recordNumber, boolean last ) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance( TRANSFORMATION );
+        cipher.init( mode, key, iv );
+        return cipher;
+    }
+
+    public byte[] encrypt( int recordNumber, boolean last, byte[] plain, int off, int len )
+            throws GeneralSecurityException {
+        return createCipher( Cipher.ENCRYPT_MODE, recordNumber, last ).doFinal( plain, off, len );
+    }
+
+    public byte[] decrypt( int recordNumber, boolean last, byte[] encrypted ) throws GeneralSecurityException {
+        return createCipher( Cipher.DECRYPT_MODE, recordNumber, last ).doFinal( encrypted );
+    }
+
+//  ---------------------------------------------
+
+    private SecretKeySpec key;
+    private IvParameterSpec iv;
+}
@@ -0,0 +1,265 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * ChunkCipher.java - AES-GCM encryption of the chunks of a chunked         *
+ *                   (version 2+) DeadboltEdit encrypted file.              *
+ *                                                                          *
+ * The 256-bit password key is derived from the password with               *
+ * PBKDF2-HMAC-SHA256.  The iteration count is calibrated to the speed of   *
+ * the machine (calibrateIterations()) and stored in the file header.  In   *
+ * version 4 files the chunks are encrypted with a random 256-bit data key, *
+ * which is wrapped with the password key (AES Key Wrap, RFC 3394) and      *
+ * stored in the header.                                                    *
+ * Each chunk is encrypted and authenticated on its own, with a 96-bit IV   *
+ * made of the random per-file nonce and the chunk number.  The chunk       *
+ * number and a last-chunk flag are also authenticated (AAD), so chunks     *
+ * can't be reordered, dropped, or the file truncated without detection.    *
+ *                                                                          *
+ * A ChunkCipher may be used from several threads, each call uses its own   *
+ * Cipher instance.  submit() runs chunk tasks on the common ForkJoinPool   *
+ * (or on the calling thread, if parallel is off); results are collected    *
+ * in chunk order with getResult().                                         *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.security.*;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.Mac;
+import javax.crypto.SecretKey;
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.PBEKeySpec;
+import javax.crypto.spec.SecretKeySpec;
+
+public class ChunkCipher implements CipherEngine {
+    //
+    //   --- Constants, package scope ---
+    protected static final int SALT_LENGTH = 16;
+    protected static final int NONCE_LENGTH = 8;
+    protected static final int TAG_LENGTH = 16;
+    protected static final int KEY_CHECK_LENGTH = 16;
+    // 256-bit key plus the 8-byte key wrap integrity check
+    protected static final int WRAPPED_KEY_LENGTH = 40;
+    protected static final int DEFAULT_KDF_ITERATIONS = 200000;
+    // Calibrated iterations are never below this, however slow the machine
+    protected static final int MIN_KDF_ITERATIONS = 100000;
+    protected static final int DEFAULT_KDF_TARGET_MS = 250;
+    // Chunk number used for the IV and AAD of the chunk index record
+    protected static final int INDEX_RECORD = -1;
+    //
+    private static final String KDF_ALGORITHM = "PBKDF2WithHmacSHA256";
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int KEY_BITS = 256;
+    private static final String KEY_CHECK_ALGORITHM = "HmacSHA256";
+    private static final String KEY_CHECK_CONSTANT = "DeadboltEdit key check";
+    private static final String KEY_WRAP_ALGORITHM = "AESWrap";
+    // Iterations timed to calibrate the KDF
+    private static final int CALIBRATION_ITERATIONS = 50000;
+    //
+    //   --- End Constants ---
+
+    public ChunkCipher( SecretKey key, byte[] nonce ) {
+        this.key = key;
+        this.nonce = nonce.clone();
+    }
+
+    // deriveKey() - AES key from password, PBKDF2-HMAC-SHA256
+    public static SecretKey deriveKey( char[] password, byte[] salt, int iterations )
+            throws GeneralSecurityException {
+        PBEKeySpec spec = new PBEKeySpec( password, salt, iterations, KEY_BITS );
+        byte[] keyBytes = null;
+        try {
+            SecretKeyFactory factory = SecretKeyFactory.getInstance( KDF_ALGORITHM );
+            keyBytes = factory.generateSecret( spec ).getEncoded();
+            return new SecretKeySpec( keyBytes, "AES" );
+        } finally {
+            spec.clearPassword();
+            if ( keyBytes != null ) {
+                Arrays.fill( keyBytes, (byte) 0 );
+            }
+        }
+    }
+
+    // kdfRate() - PBKDF2-HMAC-SHA256 iterations per second on this machine,
+    //   timing a derivation of the given number of iterations (after a
+    //   warm-up of the same size, so the JIT has compiled the HMAC code)
+    public static double kdfRate( int iterations ) throws GeneralSecurityException {
+        char[] password = "calibration".toCharArray();
+        byte[] salt = newSalt();
+        deriveKey( password, salt, iterations );
+        long startTime = System.nanoTime();
+        deriveKey( password, salt, iterations );
+        long elapsed = Math.max( 1, System.nanoTime() - startTime );
+        return iterations * 1.0e9 / elapsed;
+    }
+
+    // calibrateIterations() - PBKDF2 iterations that take about targetMs to
+    //   derive a key on this machine, so unlocking a file takes about that long
+    public static int calibrateIterations( int targetMs ) throws GeneralSecurityException {
+        double rate = kdfRate( CALIBRATION_ITERATIONS );
+        long iterations = (long) (rate * targetMs / 1000.0);
+        iterations = Math.max( MIN_KDF_ITERATIONS, Math.min( EncryptedFileHeader.MAX_KDF_ITERATIONS, iterations ) );
+        return (int) iterations;
+    }
+
+    // keyCheckValue() - HMAC of a constant under the key, stored in the header
+    //   so a wrong password is found without decrypting any chunk.  Truncated
+    //   to KEY_CHECK_LENGTH bytes.
+    public static byte[] keyCheckValue( SecretKey key ) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance( KEY_CHECK_ALGORITHM );
+        mac.init( new SecretKeySpec( key.getEncoded(), KEY_CHECK_ALGORITHM ) );
+        byte[] value;
+        try {
+            value = mac.doFinal( KEY_CHECK_CONSTANT.getBytes( "UTF-8" ) );
+        } catch (java.io.UnsupportedEncodingException uee) {
+            throw new GeneralSecurityException( uee );
+        }
+        return Arrays.copyOf( value, KEY_CHECK_LENGTH );
+    }
+
+    // keyMatches() - Compare key check values in constant time
+    public static boolean keyMatches( SecretKey key, byte[] keyCheck ) throws GeneralSecurityException {
+        return MessageDigest.isEqual( keyCheckValue( key ), keyCheck );
+    }
+
+    // newDataKey() - Random AES key for the chunks of a file
+    public static SecretKey newDataKey() throws GeneralSecurityException {
+        KeyGenerator generator = KeyGenerator.getInstance( "AES" );
+        generator.init( KEY_BITS, new SecureRandom() );
+        return generator.generateKey();
+    }
+
+    // wrapKey() - Encrypt the data key with the password key, for the header
+    public static byte[] wrapKey( SecretKey passwordKey, SecretKey dataKey ) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance( KEY_WRAP_ALGORITHM );
+        cipher.init( Cipher.WRAP_MODE, passwordKey );
+        return cipher.wrap( dataKey );
+    }
+
+    // unwrapKey() - Decrypt the data key from the header.  Throws
+    //   InvalidKeyException if the wrapped key fails its integrity check.
+    public static SecretKey unwrapKey( SecretKey passwordKey, byte[] wrappedKey ) throws GeneralSecurityException {
+        Cipher cipher = Cipher.getInstance( KEY_WRAP_ALGORITHM );
+        cipher.init( Cipher.UNWRAP_MODE, passwordKey );
+        return (SecretKey) cipher.unwrap( wrappedKey, "AES", Cipher.SECRET_KEY );
+    }
+
+    public static byte[] newSalt() {
+        return randomBytes( SALT_LENGTH );
+    }
+
+    public static byte[] newNonce() {
+        return randomBytes( NONCE_LENGTH );
+    }
+
+    public String getName() {
+        return "AES-256-GCM (JCE)";
+    }
+
+    // encrypt() - Encrypt one chunk, result is ciphertext + GCM tag
+    public byte[] encrypt( int chunkNumber, boolean last, byte[] plain, int off, int len )
+            throws GeneralSecurityException {
+        Cipher cipher = createCipher( Cipher.ENCRYPT_MODE, chunkNumber, last );
+        return cipher.doFinal( plain, off, len );
+    }
+
+    // decrypt() - Decrypt and authenticate one chunk.  Throws AEADBadTagException
+    //   if the key is wrong or the chunk has been changed.
+    public byte[] decrypt( int chunkNumber, boolean last, byte[] encrypted )
+            throws GeneralSecurityException {
+        Cipher cipher = createCipher( Cipher.DECRYPT_MODE, chunkNumber, last );
+        return cipher.doFinal( encrypted );
+    }
+
+    // submit() - Run a chunk task on the ForkJoinPool, or now on this thread if
+    //   not parallel.  Either way the result is collected with getResult().
+    public static <T> Future<T> submit( Callable<T> task, boolean parallel ) {
+        if ( parallel ) {
+            return ForkJoinPool.commonPool().submit( task );
+        }
+        FutureTask<T> future = new FutureTask<T>( task );
+        future.run();
+        return future;
+    }
+
+    // getResult() - Wait for a chunk task, and rethrow its exception
+    public static <T> T getResult( Future<T> future ) throws IOException, GeneralSecurityException {
+        try {
+            return future.get();
+        } catch (InterruptedException ie) {
+            future.cancel( true );
+            throw new InterruptedIOException( "Interrupted waiting for chunk encryption." );
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            // ForkJoinPool wraps a checked exception from the task in a RuntimeException
+            if ( (cause instanceof RuntimeException) && ((cause.getCause() instanceof IOException)
+                    || (cause.getCause() instanceof GeneralSecurityException)) ) {
+                cause = cause.getCause();
+            }
+            if ( cause instanceof IOException ) {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof GeneralSecurityException ) {
+                throw (GeneralSecurityException) cause;
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException( cause );
+        }
+    }
+
+    // parallelWindow() - Chunks to keep in flight when parallel
+    public static int parallelWindow() {
+        return 2 * ForkJoinPool.commonPool().getParallelism();
+    }
+
+    // createCipher() - Cipher for one chunk: IV is nonce + chunk number, AAD is
+    //   chunk number + last flag
+    public Cipher createCipher( int mode, int chunkNumber, boolean last ) throws GeneralSecurityException {
+        byte[] iv = ByteBuffer.allocate( NONCE_LENGTH + 4 ).put( nonce ).putInt( chunkNumber ).array();
+        byte[] aad = ByteBuffer.allocate( 5 ).putInt( chunkNumber ).put( (byte) (last ? 1 : 0) ).array();
+        Cipher cipher = Cipher.getInstance( TRANSFORMATION );
+        cipher.init( mode, key, new GCMParameterSpec( TAG_LENGTH * 8, iv ) );
+        cipher.updateAAD( aad );
+        return cipher;
+    }
+
+    private static byte[] randomBytes( int length ) {
+        byte[] bytes = new byte[length];
+        new SecureRandom().nextBytes( bytes );
+        return bytes;
+    }
+
+//  ---------------------------------------------
+
+    private SecretKey key;
+    private byte[] nonce;           // Per-file random part of the IV
+}
@@ -0,0 +1,125 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * ChunkIndex.java - Chunk table of a chunked (version 2) DeadboltEdit      *
+ *                  encrypted file.                                         *
+ *                                                                          *
+ * For each chunk: file offset of its record, record length in bytes, and   *
+ * the number of Document characters it holds.  The index is stored as an   *
+ * encrypted record after the last chunk; its offset is in the file header. *
+ * It lets the reader verify the chunk sequence, and lets a reader find the *
+ * chunk holding any character offset without decrypting the others.        *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+public class ChunkIndex {
+    //
+    //   --- Constants, package scope ---
+    // Serialized entry: offset (long), record length (int), chars (int)
+    protected static final int ENTRY_LENGTH = 16;
+    //
+    //   --- End Constants ---
+
+    public ChunkIndex() {
+        offsets = new long[16];
+        lengths = new int[16];
+        charCounts = new int[16];
+        count = 0;
+    }
+
+    public void add( long offset, int recordLength, int chars ) {
+        if ( count == offsets.length ) {
+            offsets = Arrays.copyOf( offsets, count * 2 );
+            lengths = Arrays.copyOf( lengths, count * 2 );
+            charCounts = Arrays.copyOf( charCounts, count * 2 );
+        }
+        offsets[count] = offset;
+        lengths[count] = recordLength;
+        charCounts[count] = chars;
+        count++;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public long getOffset( int chunk ) {
+        return offsets[chunk];
+    }
+
+    public int getRecordLength( int chunk ) {
+        return lengths[chunk];
+    }
+
+    public int getCharCount( int chunk ) {
+        return charCounts[chunk];
+    }
+
+    // findChunk() - Chunk holding the character at Document offset charOffset,
+    //   or -1 if charOffset is past the end of the text.
+    public int findChunk( long charOffset ) {
+        long chunkStart = 0;
+        for (int i=0; i<count; i++) {
+            if ( charOffset < chunkStart + charCounts[i] ) {
+                return i;
+            }
+            chunkStart += charCounts[i];
+        }
+        return -1;
+    }
+
+    public byte[] toBytes() {
+        ByteBuffer buf = ByteBuffer.allocate( 4 + count * ENTRY_LENGTH );
+        buf.putInt( count );
+        for (int i=0; i<count; i++) {
+            buf.putLong( offsets[i] ).putInt( lengths[i] ).putInt( charCounts[i] );
+        }
+        return buf.array();
+    }
+
+    public static ChunkIndex fromBytes( byte[] data ) throws IOException {
+        ChunkIndex index = new ChunkIndex();
+        try {
+            ByteBuffer buf = ByteBuffer.wrap( data );
+            int n = buf.getInt();
+            if ( n < 1 || n != (data.length - 4) / ENTRY_LENGTH || buf.remaining() != n * ENTRY_LENGTH ) {
+                throw new IOException( "Chunk index has incorrect length." );
+            }
+            for (int i=0; i<n; i++) {
+                index.add( buf.getLong(), buf.getInt(), buf.getInt() );
+            }
+        } catch (BufferUnderflowException bue) {
+            throw new IOException( "Chunk index is truncated." );
+        }
+        return index;
+    }
+
+//  ---------------------------------------------
+
+    private long[] offsets;         // File offset of each chunk record
+    private int[] lengths;          // Record length, bytes
+    private int[] charCounts;       // Document characters in each chunk
+    private int count;
+}
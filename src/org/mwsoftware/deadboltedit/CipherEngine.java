@@ -0,0 +1,52 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * CipherEngine.java - Encryption of the records of a DeadboltEdit file.    *
+ *                                                                          *
+ * An engine holds the key material for one file and encrypts or decrypts   *
+ * its records.  The engine is chosen from the file header version:         *
+ *   versions 0 and 1 - BlowfishEngine (legacy OpenSSL envelope, read only) *
+ *   versions 2 to 4  - ChunkCipher (AES-256-GCM, one record per chunk)     *
+ *                                                                          *
+ * Both engines use the JCE providers only, so the JDK's AES intrinsics are *
+ * used where the CPU has them.                                             *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.security.GeneralSecurityException;
+import javax.crypto.Cipher;
+
+interface CipherEngine {
+
+    // getName() - Cipher description, for the log
+    public String getName();
+
+    // createCipher() - Cipher initialized for one record, for streaming it.
+    //   mode is Cipher.ENCRYPT_MODE or Cipher.DECRYPT_MODE.
+    public Cipher createCipher( int mode, int recordNumber, boolean last ) throws GeneralSecurityException;
+
+    // encrypt() - Encrypt one record
+    public byte[] encrypt( int recordNumber, boolean last, byte[] plain, int off, int len )
+        throws GeneralSecurityException;
+
+    // decrypt() - Decrypt one record.  An engine with authenticated records
+    //   throws AEADBadTagException if the key is wrong or the record changed.
+    public byte[] decrypt( int recordNumber, boolean last, byte[] encrypted ) throws GeneralSecurityException;
+}
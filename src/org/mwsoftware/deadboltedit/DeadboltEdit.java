@@ -32,12 +32,10 @@ import javax.swing.text.*;   // Document, PlainDocument
 import javax.swing.event.*;  //DocumentListener interface, DocumentEvent
 import java.io.*;
 import java.util.*;     // ex. java.util.Arrays.fill()
-import org.apache.commons.ssl.*;
 
 import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
 
-import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
 
 
@@ -65,6 +63,8 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             }
         }
         SwingUtilities.updateComponentTreeUI( this );
+        // Fixed for the life of the window, see createEditorPane()
+        plainTextMode = "1".equals( settings.getProperty("editor.plain.mode") );
         initComponents();
         initEditorPopupMenu();
         //  MacOS Only: Set a QuitStrategy to catch the Quit event from either
@@ -113,19 +113,44 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         //
         // Add our DocumentListener to the editor.  This signals edit changes
         editorPane.getDocument().addDocumentListener(this);
+        // Line starts, for the caret position and Go To Line
+        lineIndex = new LineIndex( editorPane.getDocument() );
+        editorPane.getDocument().addDocumentListener( lineIndex );
+        editorPane.addCaretListener( new CaretListener() {
+            @Override
+            public void caretUpdate(CaretEvent e) {
+                if ( !statusRefreshTimer.isRunning() ) {
+                    statusRefreshTimer.start();
+                }
+            }
+        });
         //
-        // Create the undo manager
-        undoManager = new UndoManager();
+        // Create the undo manager.  Typing is grouped by word, and the history
+        // is limited by size (undo.max.bytes, see applyUndoBudget())
+        undoManager = new UndoHistory();
+        undoManager.setSpilling( true );
         editorPane.getDocument().addUndoableEditListener(undoManager);
-        undoManager.setLimit( 50 );  // default is 100, we're small and lightweight
+        // Large texts of old undo edits go to an encrypted temp file
+        undoSpillFile = new UndoSpillFile();
+        setUndoSpillFile( editorPane.getDocument() );
         // Add also our UndoableEditListener, to keep the Undo menu item refreshed
         editorPane.getDocument().addUndoableEditListener( this );
+        // Document events are folded into one status refresh per timer tick
+        statusRefreshTimer = new javax.swing.Timer( STATUS_REFRESH_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                if ( editStatusPending ) {
+                    refreshEditStatus();
+                }
+                showCaretPosition();
+            }
+        });
+        statusRefreshTimer.setRepeats( false );
         //
         //
         file = new FileInfo();  // Our file-related info
         editorPane.setText("");
-        startingHashCode = editorPane.getText().hashCode();
-        startingTextLength = editorPane.getText().length();
+        markTextSaved();
         this.undoManager.discardAllEdits();  // Ensure the Undo/Redo memory is clear
         file.setFullpath("");
         initActiveDirectory();  // set activeDirectory, for file dialogs
@@ -213,8 +238,23 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
     }
     // ---- End: DocumentListener Methods ---------------------------------
     
+    // processDocumentEvent() - Schedule a status refresh.  A burst of document
+    // events (paste, Replace All, undo of a large edit) gets one refresh, when
+    // the timer fires.
     private void processDocumentEvent(String type) {
         //System.out.println("DocumentListener: " + type);
+        documentEventCount++;
+        editStatusPending = true;
+        if ( !statusRefreshTimer.isRunning() ) {
+            statusRefreshTimer.start();
+        }
+    }
+
+    // refreshEditStatus() - Show edited status in title and status bar, and
+    // reset the Redo menu item after a new edit.
+    private void refreshEditStatus() {
+        statusRefreshCount++;
+        editStatusPending = false;
         if ( unsavedEditorChanges() ) {
             if (! documentChangeStatusShown ) {
                 showEditStatus( true, "(Edited)" ); // show text modified
@@ -225,12 +265,21 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                 showEditStatus( false, "" ); // remove text modified
             }
         }
-        // Redo becomes unavailable after an edit
-        if ( redoInformationShown ) {
+        // Redo becomes unavailable after an edit (but not after an undo)
+        if ( redoInformationShown && !undoManager.canRedo() ) {
             menuEditRedo.setText("Redo");
             redoInformationShown = false;
         }
     }
+
+    // showCaretPosition() - Show the caret line and column (1 based) in the
+    // status bar.  Tabs count as one column.
+    private void showCaretPosition() {
+        int offset = editorPane.getCaretPosition();
+        int line = lineIndex.getLineOfOffset( offset );
+        int column = offset - lineIndex.getLineStart( line );
+        caretStatusField.setText( "Ln " + (line + 1) + ", Col " + (column + 1) );
+    }
     
     // ---- UndoableEditListener Methods ----------------------------------
     // undoableEditHappened() - Used to keep the "Undo" & "Redo" menu items
@@ -301,6 +350,16 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                 settings.setProperty( "window.last.Width", Integer.toString(w) );
                 settings.setProperty( "window.last.Height", Integer.toString(h) );
         }
+        if ( chunkLoader != null ) {
+            chunkLoader.cancel( true );
+            chunkLoader = null;
+        }
+        file.destroy();     // Zero the cached password key
+        undoManager.discardAllEdits();
+        undoSpillFile.delete();     // Overwrite and delete the undo temp file
+        statusRefreshTimer.stop();
+        logger.out("Status refreshes: " + statusRefreshCount + " for " + documentEventCount
+            + " document events (" + (documentEventCount - statusRefreshCount) + " saved)" );
         openEditors.set(editorID, null);
         openEditorCount--;
         logger.out("Closing editor: " + Integer.toString(editorID) );
@@ -326,13 +385,68 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         }
     }
     
-    // resetUndoHistory() = Clear Undo history, and reset menu descriptions
+    // resetUndoHistory() = Clear Undo history, and reset menu descriptions.
+    //   The undo temp file is overwritten and deleted.
     private void resetUndoHistory() {
         this.undoManager.discardAllEdits();     // Clear the Undo/Redo memory
+        undoSpillFile.delete();
         menuEditUndo.setText("Undo");
         menuEditRedo.setText("Redo");
     }
 
+    // createEditorPane() - The editor component.  In plain text mode it's a
+    // JTextArea editing a PlainEditorDocument, otherwise a JTextPane editing a
+    // StyledEditorDocument (with StyledTextEditorKit views).  Editor documents track their own changes (see
+    // EditorDocument).
+    private JTextComponent createEditorPane() {
+        if ( plainTextMode ) {
+            return new JTextArea( new PlainEditorDocument() );
+        }
+        JTextPane textPane = new JTextPane();
+        textPane.setEditorKit( new StyledTextEditorKit() );
+        return textPane;
+    }
+
+    // createEditorDocument() - A new, empty Document for the editor component
+    private EditorDocument createEditorDocument() {
+        if ( plainTextMode ) {
+            return new PlainEditorDocument();
+        }
+        return new StyledEditorDocument();
+    }
+
+    // setEditorDocument() - Replace the editor Document, moving our listeners and
+    // the undo manager to the new Document.
+    private void setEditorDocument( Document newDoc ) {
+        removeEditorListeners( editorPane.getDocument() );
+        editorPane.setDocument( newDoc );
+        addEditorListeners( newDoc );
+        applyTabSize();     // The new Document doesn't have our tab size yet
+    }
+
+    private void addEditorListeners( Document doc ) {
+        doc.addDocumentListener( this );
+        lineIndex = new LineIndex( doc );
+        doc.addDocumentListener( lineIndex );
+        doc.addUndoableEditListener( undoManager );
+        doc.addUndoableEditListener( this );
+        setUndoSpillFile( doc );
+    }
+
+    // setUndoSpillFile() - Give an editor Document our undo temp file
+    private void setUndoSpillFile( Document doc ) {
+        if ( doc instanceof EditorDocument ) {
+            ((EditorDocument) doc).setUndoSpillFile( undoSpillFile );
+        }
+    }
+
+    private void removeEditorListeners( Document doc ) {
+        doc.removeDocumentListener( this );
+        doc.removeDocumentListener( lineIndex );
+        doc.removeUndoableEditListener( undoManager );
+        doc.removeUndoableEditListener( this );
+    }
+
     // Apply settings that are applicable to an editor instance
     private void applySettings() {
         String valueStr = null;
@@ -392,9 +506,65 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             this.editorPane.setFont( PgmUtils.FALLBACK_DEFAULT_TEXT_FONT );
         }
         // -- Tab Size
-        //    Dependence: Tab Size must be set AFTER setting font, FontMetrics are used to calculate tab spacing!
+        //    (Tab spacing is computed from the current font when the text is laid out)
+        applyTabSize();
+        // -- Undo history size
+        applyUndoBudget();
+        // -- Line Wrap: Enable/Disable line-wrap.  Scrolling is enables when line-wrap
+        //               is disabled.
+        if ( "1".equals( settings.getProperty("line.wrap.enable")) ) {
+            menuSettingsLineWrapChkbox.setSelected(true);
+            if ( editorPane instanceof JTextArea ) {
+                ((JTextArea) editorPane).setLineWrap( true );
+                ((JTextArea) editorPane).setWrapStyleWord( true );
+            }
+            else {
+                // Paragraphs are wrapped incrementally, see WrappedTextView
+                StyledTextEditorKit.setLineWrap( (JTextPane) editorPane, true );
+            }
+            if ( scrollPane1.getViewport().getView() != editorPane ) {
+                scrollPane1.setViewportView( editorPane );
+            }
+            // Vertical scrolling speed - set faster rate than default
+            scrollPane1.getVerticalScrollBar().setUnitIncrement(16);
+
+        }
+        else {
+            menuSettingsLineWrapChkbox.setSelected(false);
+            if ( editorPane instanceof JTextArea ) {
+                ((JTextArea) editorPane).setLineWrap( false );
+            }
+            else {
+                // Only the visible lines are laid out, see NoWrapTextView
+                StyledTextEditorKit.setLineWrap( (JTextPane) editorPane, false );
+            }
+            if ( scrollPane1.getViewport().getView() != noWrapPanel ) {
+                scrollPane1.setViewportView( noWrapPanel );
+                noWrapPanel.add( editorPane );
+            }
+            // Scrolling speed - set faster rate than default
+            scrollPane1.getVerticalScrollBar().setUnitIncrement(16);
+            scrollPane1.getHorizontalScrollBar().setUnitIncrement(14);
+        }
+        // -- Plain Text Mode: used when an editor window is created, see createEditorPane()
+        menuSettingsPlainTextChkbox.setSelected( "1".equals( settings.getProperty("editor.plain.mode")) );
+        // -- Debug Log.  Log is enabled/disabled elsewhere, we just adjust the Settings menu
+        //                checkbox here.
+        if ( "1".equals( settings.getProperty("debug.log.enable")) ) {
+            MenuSettingsDebugLogChkbox.setSelected(true);
+        }
+        else {
+            MenuSettingsDebugLogChkbox.setSelected(false);
+        }
+    }
+
+    // applyTabSize() - Set the tab size of the editor Document from settings.
+    // Both editor modes keep it in one Document property, so this is cheap
+    // unless the tab size changed (see StyledTextEditorKit).
+    private void applyTabSize() {
+        String valueStr = null;
         Document editorDoc = editorPane.getDocument();
-        if ( editorDoc instanceof DefaultStyledDocument ) {
+        if ( editorDoc instanceof EditorDocument ) {
             valueStr = settings.getProperty("tab.size");
             int tabSize;
             try {
@@ -410,39 +580,33 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                 tabSize = PgmUtils.FALLBACK_DEFAULT_TAB_SIZE;
                 settings.remove("tab.size");      // avoid the problem next time
             }
-            StyledDocumentHelper docHelper = new StyledDocumentHelper();
-            docHelper.setTabs(editorPane, tabSize);
+            if ( editorPane instanceof JTextArea ) {
+                ((JTextArea) editorPane).setTabSize( tabSize );     // No-op if unchanged
+            }
+            else if ( !Integer.valueOf( tabSize ).equals( editorDoc.getProperty( PlainDocument.tabSizeAttribute ) ) ) {
+                editorDoc.putProperty( PlainDocument.tabSizeAttribute, Integer.valueOf( tabSize ) );
+                StyledTextEditorKit.tabSizeChanged( editorPane );
+            }
             editorDoc = null;
             this.revalidate();
         }
         else {
-            System.err.println("Error: Cannot set tab size - Editor Document type not DefaultStyledDocument.\n");
+            System.err.println("Error: Cannot set tab size - Editor Document type not EditorDocument.\n");
         }
-        // -- Line Wrap: Enable/Disable line-wrap.  Scrolling is enables when line-wrap
-        //               is disabled.
-        if ( "1".equals( settings.getProperty("line.wrap.enable")) ) {
-            menuSettingsLineWrapChkbox.setSelected(true);
-            scrollPane1.setViewportView( editorPane );
-            // Vertical scrolling speed - set faster rate than default
-            scrollPane1.getVerticalScrollBar().setUnitIncrement(16);
+    }
 
+    // applyUndoBudget() - Limit the undo history to undo.max.bytes of edits
+    private void applyUndoBudget() {
+        long maxBytes = UndoHistory.DEFAULT_MAX_BYTES;
+        String valueStr = settings.getProperty("undo.max.bytes");
+        if ( valueStr != null ) {
+            try {
+                maxBytes = Long.parseLong( valueStr );
+            } catch (NumberFormatException nfe) {
+                System.err.println("Warning: Invalid undo.max.bytes setting, using default.");
+            }
         }
-        else {
-            menuSettingsLineWrapChkbox.setSelected(false);
-            scrollPane1.setViewportView( noWrapPanel );
-            // Scrolling speed - set faster rate than default
-            scrollPane1.getVerticalScrollBar().setUnitIncrement(16);
-            scrollPane1.getHorizontalScrollBar().setUnitIncrement(14);
-            noWrapPanel.add( editorPane );
-        }
-        // -- Debug Log.  Log is enabled/disabled elsewhere, we just adjust the Settings menu
-        //                checkbox here.
-        if ( "1".equals( settings.getProperty("debug.log.enable")) ) {
-            MenuSettingsDebugLogChkbox.setSelected(true);
-        }
-        else {
-            MenuSettingsDebugLogChkbox.setSelected(false);
-        }
+        undoManager.setMaxBytes( maxBytes );
     }
 
     // Propagate settings to all open editors - ask each editor to update
@@ -484,17 +648,39 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         }
     }
 
-    // Check for unsaved changes in editor
+    // Check for unsaved changes in editor.  Called on every document event, so
+    // the usual cases don't look at the text (see EditorDocument).
     private boolean unsavedEditorChanges() {
-        int editorHashCode;
-        int editorTextLength;
-        // Check for text changes
-        editorHashCode = this.editorPane.getText().hashCode();
-        editorTextLength = this.editorPane.getText().length();
-        if ((editorHashCode == startingHashCode) && (startingTextLength == editorTextLength) )
-            return(false);
-        else
+        if ( chunkLoader != null ) {
+            return false;       // Still loading, the text can't be edited yet
+        }
+        EditorDocument doc = (EditorDocument) this.editorPane.getDocument();
+        long generation = doc.getEditGeneration();
+        if ( generation == savedGeneration ) {
+            return(false);      // No edits since load/save
+        }
+        if ( (doc.getLength() != startingTextLength) || (doc.getChecksum() != savedChecksum) ) {
             return(true);
+        }
+        // Same characters as the saved text, maybe the edits were undone.
+        // Compare the hash of the text once for this generation.
+        if ( generation != checkedGeneration ) {
+            checkedGeneration = generation;
+            if ( doc.textHashCode() == startingHashCode ) {
+                savedGeneration = generation;   // Back to the saved text
+            }
+        }
+        return( generation != savedGeneration );
+    }
+
+    // markTextSaved() - Remember the editor text as the saved (unchanged) text
+    private void markTextSaved() {
+        EditorDocument doc = (EditorDocument) this.editorPane.getDocument();
+        savedGeneration = doc.getEditGeneration();
+        savedChecksum = doc.getChecksum();
+        checkedGeneration = savedGeneration;
+        startingTextLength = doc.getLength();
+        startingHashCode = doc.textHashCode();
     }
 
     // showEditStatus(boolean documentChangeStatus, String editStatusMsg)
@@ -554,86 +740,37 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             return;
         }
 
-        FileInputStream fis = null;
-        byte[] inBuf = null;
+        EncryptedFileReader reader = null;
         boolean fileLoaded = false;
         menuFilePasswordChange.setEnabled(false);
         logger.out("Opening encrypted file: " + file.getFullpath() );
         processFile: {      // Begin: processFile
+            String fileFormatError = "Error: File format is incorrect, or file is corrupt.";
             try {
-                fis = new FileInputStream ( file.getFullpath() );
-                int size = fis.available ();
-                inBuf = new byte[size];
-                fis.read (inBuf);
+                reader = new EncryptedFileReader( new File( file.getFullpath() ) );
+                reader.setParallel( parallelCryptoEnabled() );
+                // Process the file header
+                if ( !reader.readHeader() ) {
+                    logger.out( reader.getErrorMessage() );
+                    fileStatusField.setText( fileFormatError );
+                    editStatusField.setText("");
+                    break processFile;
+                }
             } catch (IOException ioe) {
                 fileStatusField.setText("IO Error reading file header.");
                 editStatusField.setText("");
                 System.err.println("IO Error reading file header.");
                 ioe.printStackTrace();
                 break processFile;
-            } finally {
-                try {
-                    fis.close ();
-                } catch (IOException e2) {
-                    fileStatusField.setText("IO Error reading file header.");
-                    editStatusField.setText("");
-                    break processFile;
-                }
-            }
-            // Process the file header
-            String fileFormatError = "Error: File format is incorrect, or file is corrupt.";
-            if (! PgmUtils.bufferHasString( inBuf, fileSignature) ) {
-                logger.out("File is missing File Signature string in header.");
-                fileStatusField.setText( fileFormatError );
-                editStatusField.setText("");
-                break processFile;
-            }
-            int headerLength = 0;
-            for (int i=0; i<inBuf.length; i++ ){
-                if ( inBuf[i] == (byte) '\n' ) {
-                    headerLength = i + 1;
-                    break;
-                }
-            }
-            int encDataBytes = inBuf.length - headerLength;
-            String[] fileHeader = null;
-            try {
-                fileHeader = new String( inBuf, 0, (headerLength - 1), "UTF-8" ).split( ":" );
-            } catch (Exception e) {
-                logger.out("Error - Exception occurred decoding file header fields.");
-            }
-            if ( fileHeader.length != 3 ) {
-                logger.out("Error - Did not get expected fields in file header.");
-                fileStatusField.setText( fileFormatError );
-                editStatusField.setText("");
-                break processFile;
-            }
-            if (BuildConfig.DEBUG) {
-                for (int i=0; i<fileHeader.length; i++ ){
-                    System.err.println("Debug: Header Field" + i + " = " + fileHeader[i] );
-                }
-            }
-            byte[] encryptedData = new byte[encDataBytes];
-            System.arraycopy(inBuf, headerLength, encryptedData, 0, encDataBytes );
-            inBuf = null;
-            if ( !fileHeader[2].equals( new String(PgmUtils.MD5Hash(encryptedData)) ) ) {
-                logger.out("Hash code of encrypted block doesn't match value in header.");
-                fileStatusField.setText( fileFormatError );
-                editStatusField.setText("");
-                break processFile;
-            }
-            if (! PgmUtils.bufferHasString( encryptedData, encryptionSignature) ) {
-                logger.out("Encryption data block doesn't have correct signature string.");
-                fileStatusField.setText( fileFormatError );
-                editStatusField.setText("");
-                break processFile;
             }
 
             // Decrypt data and check MD5 hash to validate decryption.
             // Invalid decryption indicates incorrect password.
+            // The text is streamed into a new Document that isn't attached to the
+            // editor yet, so a failed attempt leaves the editor untouched and the
+            // editor views and listeners see only the finished document.
             char[] tmpPassword = null;
-            byte[] decryptedData = null;
-            String decryptedText = null;
+            Document loadedDoc = null;
             boolean decryptionVerified = false;
             PasswordDialog pwd = new PasswordDialog( this);
             pwd.setFrameTitle( file.getBasename() + file.getExt() );
@@ -646,10 +783,31 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                     editStatusField.setText("");
                     break processFile;
                 }
+                int result;
+                loadedDoc = createEditorDocument();
                 try {
-                    decryptedData = OpenSSL.decrypt("blowfish", tmpPassword, encryptedData);
-                } catch (IOException ioe) {     // Incorrect Password
-                    decryptedData = null;
+                    if ( reader.isChunked() ) {
+                        // Only the first chunk is decrypted here, see ChunkLoader
+                        result = reader.beginChunks( tmpPassword );
+                        if ( result == EncryptedFileReader.DECRYPT_OK ) {
+                            loadedDoc.insertString( 0, reader.nextChunk(), null );
+                        }
+                    }
+                    else {
+                        result = reader.decrypt( tmpPassword, loadedDoc, editorPane.getUI().getEditorKit( editorPane ) );
+                    }
+                } catch (IOException ioe) {
+                    fileStatusField.setText("IO Error reading file.");
+                    editStatusField.setText("");
+                    System.err.println("IO Error occurred during data decryption.");
+                    ioe.printStackTrace();
+                    break processFile;
+                } catch (BadLocationException ble) {
+                    fileStatusField.setText("Error loading decrypted text.");
+                    editStatusField.setText("");
+                    System.err.println("BadLocationException occurred loading decrypted text.");
+                    ble.printStackTrace();
+                    break processFile;
                 } catch (java.security.GeneralSecurityException gse) {
                     fileStatusField.setText("GeneralSecurityException, decryption.");
                     editStatusField.setText("");
@@ -657,37 +815,19 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                     gse.printStackTrace();
                     break processFile;
                 }
-                if ( decryptedData != null ) {
-                    // get MD5 hash and verify the decryption (verify the password)
-                    int textBegin = 0;
-                    int lengthEmbeddedMD5 = 0;
-                    int textBytes = 0;
-                    for (int i=0; (i<decryptedData.length) && (i<33); i++) {
-                        if (decryptedData[i] == (byte) '\n' ) {
-                            textBegin = i+1;
-                            lengthEmbeddedMD5 = i;
-                            break;
-                        }
-                    }
-                    if ( lengthEmbeddedMD5 > 0 ) {
-                        textBytes = decryptedData.length - textBegin;
-                        String expectedMD5 = null;
-                        try {
-                            expectedMD5 = new String(decryptedData, 0, lengthEmbeddedMD5, "UTF-8" );
-                        } catch (Exception e) {
-                            logger.out("Error - Exception occurred decoding MD5 Hash from file header.");
-                        }
-                        try {
-                            decryptedText = new String(decryptedData, textBegin, textBytes, "UTF-8");
-                        } catch (Exception e) {
-                            logger.out("Error - Exception occurred decoding decryptedData.");
-                        }
-                        if ( expectedMD5.equals( PgmUtils.MD5Hash(decryptedText) ) ) {
-                            decryptionVerified = true;
-                        }
-                    }
+                if ( result == EncryptedFileReader.DECRYPT_CORRUPT ) {
+                    logger.out( reader.getErrorMessage() );
+                    fileStatusField.setText( fileFormatError );
+                    editStatusField.setText("");
+                    break processFile;
                 }
-                if ( !decryptionVerified ) {  // Bad password - warn and re-try
+                if ( result == EncryptedFileReader.DECRYPT_OK ) {
+                    decryptionVerified = true;
+                    logger.out("Cipher: " + reader.getCipherName() );
+                }
+                else {  // Bad password - warn and re-try
+                    logger.out( reader.getErrorMessage() );
+                    loadedDoc = null;
                     String warningMsg = "Password is not correct for file " + file.getBasename() + file.getExt();
                     JOptionPane warningPane = new JOptionPane();
                     warningPane.showMessageDialog(null, warningMsg, "Incorrect Password", JOptionPane.WARNING_MESSAGE);
@@ -695,17 +835,55 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             } // End: Decrypt data and verify password
             pwd.dispose();
             file.setPassword( tmpPassword );
+            file.setPasswordKey( reader.getPasswordKey() );     // null for older file versions
             Arrays.fill( tmpPassword, (char) ' ');   // blank out password
-            Arrays.fill(decryptedData, (byte) ' ');  // blank editor data (still have a string ...)
-            editorPane.setText( new String(decryptedText) );
+            setEditorDocument( loadedDoc );
             editorPane.setCaretPosition( 0 );      // top of text
-            encryptedData = null;
-            decryptedData = null;
-            fileStatusField.setText("Encrypted file");
             editStatusField.setText("");
+            if ( reader.hasMoreChunks() ) {
+                // Show the first chunk now, the rest is loaded in the background
+                chunkLoader = new ChunkLoader( reader, loadedDoc );
+                reader = null;      // Closed by chunkLoader
+                break processFile;
+            }
+            fileStatusField.setText("Encrypted file");
             menuFilePasswordChange.setEnabled(true);    // Allow password change
             fileLoaded = true;
         }   // End: processFile
+        if ( reader != null ) {
+            reader.close();
+        }
+        if ( chunkLoader != null ) {
+            // Editor is read-only until chunkLoader calls chunkLoadFinished()
+            removeEditorListeners( editorPane.getDocument() );
+            editorPane.setEditable( false );
+            fileStatusField.setText("Loading ...");
+            chunkLoader.execute();
+            return;
+        }
+        finishLoad( fileLoaded );
+    }       // End: loadEncryptedFile()
+
+    // chunkLoadFinished() - Background load of a chunked file is done, error is
+    // null if all chunks were loaded.
+    private void chunkLoadFinished( Throwable error ) {
+        chunkLoader = null;
+        addEditorListeners( editorPane.getDocument() );
+        editorPane.setEditable( true );
+        if ( error != null ) {
+            logger.out( "Error loading encrypted file: " + error.getMessage() );
+            fileStatusField.setText("Error: File format is incorrect, or file is corrupt.");
+            finishLoad( false );
+            return;
+        }
+        fileStatusField.setText("Encrypted file");
+        menuFilePasswordChange.setEnabled(true);    // Allow password change
+        finishLoad( true );
+    }
+
+    // finishLoad() - Common end of loading an encrypted file.  If the file
+    // wasn't loaded, clear the editor.
+    private void finishLoad( boolean fileLoaded ) {
         System.gc();
         if ( !fileLoaded ) {
             editorPane.setText( new String("") );
@@ -715,16 +893,67 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             file.setExt( ".ctxt" );
         }
 
-        this.startingHashCode = this.editorPane.getText().hashCode();
-        this.startingTextLength = this.editorPane.getText().length();
+        markTextSaved();
         resetUndoHistory();     // Clear the Undo/Redo memory
         showEditStatus( false, "" );
-    }       // End: loadEncryptedFile()
+    }
+
+    // parallelCryptoEnabled() - Encrypt/decrypt file chunks on all cores.  Can be
+    // turned off in settings to compare with single-threaded speed.
+    private boolean parallelCryptoEnabled() {
+        return !"0".equals( settings.getProperty("crypto.parallel.enable") );
+    }
+
+    // kdfIterations() - PBKDF2 iterations for a new password key.  Calibrated on
+    // the first save so a key takes about kdf.target.ms to derive on this
+    // machine, and kept in settings (recalibrated if kdf.target.ms changes).
+    private int kdfIterations() {
+        int targetMs = ChunkCipher.DEFAULT_KDF_TARGET_MS;
+        try {
+            targetMs = Integer.parseInt( settings.getProperty("kdf.target.ms") );
+        } catch (NumberFormatException nfe) {
+            System.err.println("Warning: Invalid kdf.target.ms setting, using default.");
+        }
+        try {
+            if ( Integer.toString( targetMs ).equals( settings.getProperty("kdf.calibrated.target.ms") ) ) {
+                return Integer.parseInt( settings.getProperty("kdf.iterations") );
+            }
+        } catch (NumberFormatException nfe) {
+            // Recalibrate
+        }
+        int iterations = ChunkCipher.DEFAULT_KDF_ITERATIONS;
+        try {
+            long startTime = System.currentTimeMillis();
+            iterations = ChunkCipher.calibrateIterations( targetMs );
+            logger.out("KDF calibrated to " + iterations + " iterations for " + targetMs + " ms (in "
+                + (System.currentTimeMillis() - startTime) + " ms)");
+        } catch (java.security.GeneralSecurityException gse) {
+            System.err.println("GeneralSecurityException Error occurred during KDF calibration.");
+            return iterations;
+        }
+        settings.setProperty( "kdf.iterations", Integer.toString( iterations ) );
+        settings.setProperty( "kdf.calibrated.target.ms", Integer.toString( targetMs ) );
+        return iterations;
+    }
+
+    // fileLoadInProgress() - True if a file is still loading in the background.
+    // File actions are refused until it is done.
+    private boolean fileLoadInProgress() {
+        if ( chunkLoader == null ) {
+            return false;
+        }
+        editStatusField.setText("Please wait, file is loading.");
+        Toolkit.getDefaultToolkit().beep();
+        return true;
+    }
 
     // -----   Menu Processing Methods   -----
     //
     private void fileOpen(ActionEvent e) {
         //
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         if ( unsavedEditorChanges() ) {
             int response;
             String warningMessage = "Unsaved editor changes for file " + file.getBasename() + file.getExt() + "\n" +
@@ -766,6 +995,9 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
 
     private void fileSave(ActionEvent e) {
         //
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         if ("".equals( file.getFullpath() ) || !".ctxt".equals( file.getExt() ) ) {
             fileSaveAs( null );
             return;
@@ -788,20 +1020,26 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                 }
             }
             logger.out("Saving encrypted file: " + file.getFullpath() );
-            FileOutputStream fos = null;
-            // Create file header
-            byte[] editorTextBuf = null;
-            char[] tmpPassword = file.getPassword();
+            // Use the cached password key if there is one, otherwise derive it
+            // from the password (and cache it for the next save)
+            PasswordKey passwordKey = file.getPasswordKey();
+            char[] tmpPassword = null;
             try {
-                String editorTextStr = editorPane.getText();
-                String editorTextMD5 = PgmUtils.MD5Hash( editorTextStr );
-                editorTextBuf = new String(editorTextMD5 + "\n" + editorTextStr ).getBytes("UTF-8");
-                byte[] encryptedData = OpenSSL.encrypt("blowfish", tmpPassword, editorTextBuf );
-                String fileHeader = fileSignature + "0:" + PgmUtils.MD5Hash( encryptedData ) + ":\n";
-                fos = new FileOutputStream ( file.getFullpath() );
-                fos.write(fileHeader.getBytes("UTF-8") );   // Write the file header
-                fos.write( encryptedData );
-                editorTextStr = null;
+                EncryptedFileWriter writer = new EncryptedFileWriter( new File( file.getFullpath() ) );
+                writer.setParallel( parallelCryptoEnabled() );
+                long startTime = System.currentTimeMillis();
+                if ( passwordKey != null ) {
+                    writer.write( editorPane.getDocument(), passwordKey );
+                }
+                else {
+                    tmpPassword = file.getPassword();
+                    writer.setKdfIterations( kdfIterations() );
+                    writer.write( editorPane.getDocument(), tmpPassword );
+                    file.setPasswordKey( writer.getPasswordKey() );
+                }
+                logger.out("Saved in " + (System.currentTimeMillis() - startTime) + " ms, parallel crypto: "
+                    + parallelCryptoEnabled() );
+                markTextSaved();
                 fileStatusField.setText("Encrypted file");
                 showEditStatus(false, "(Saved)");
             } catch (IOException ioe) {
@@ -809,29 +1047,31 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                 editStatusField.setText("");
                 System.err.println("IO Error occurred during data encryption.");
                 ioe.printStackTrace();
+            } catch (BadLocationException ble) {
+                fileStatusField.setText("Error reading editor text.");
+                editStatusField.setText("");
+                System.err.println("BadLocationException occurred reading editor text for encryption.");
+                ble.printStackTrace();
             } catch (java.security.GeneralSecurityException gse) {
                 fileStatusField.setText("GeneralSecurityException, encryption.");
                 editStatusField.setText("");
                 System.err.println("GeneralSecurityException Error occurred during data encryption.");
                 gse.printStackTrace();
             } finally {
-                try {
+                if ( tmpPassword != null ) {
                     Arrays.fill(tmpPassword, (char) ' ');  // blank out password
-                    Arrays.fill(editorTextBuf, (byte) ' ');
-                    fos.close ();
-                } catch (IOException e2) {
-                    fileStatusField.setText("IO Error, file close.");
                 }
             }
             menuFilePasswordChange.setEnabled(true);    // Allow password change
-            startingHashCode = editorPane.getText().hashCode();
-            startingTextLength = editorPane.getText().length();
             resetUndoHistory();     // Clear the Undo/Redo memory
         }
     }
 
     private void fileSaveAs(ActionEvent e) {
         //
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         FileDialog fileDialog = new FileDialog (this, "Save Encrypted File", FileDialog.SAVE);
         // fileDialog.show ();  ... deprecated
         // fileDialog.setMode( FileDialog.SAVE );  ... in constructor
@@ -910,6 +1150,9 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
 
     private void fileSavePlaintext(ActionEvent e) {
     	//
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         FileDialog fileDialog = new FileDialog (this, "Save as Plain Text File", FileDialog.SAVE);
         String oldFileExtension = file.getExt();
         file.setExt( ".txt" );
@@ -957,12 +1200,14 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         }
         file.setPassword( null );
         menuFilePasswordChange.setEnabled(false);
-        this.startingHashCode = this.editorPane.getText().hashCode();
-        this.startingTextLength = this.editorPane.getText().length();
+        markTextSaved();
         resetUndoHistory();     // Clear the Undo/Redo memory
     }
 
     private void filePrint(ActionEvent e) {
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         String valueStr = null;
         int tabSize;
         valueStr = settings.getProperty("tab.size");
@@ -980,6 +1225,9 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
 
     private void fileOpenPlaintext(ActionEvent e) {
     	//
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         if ( unsavedEditorChanges() ) {
             int response;
             JOptionPane optionPane = new JOptionPane();
@@ -1051,29 +1299,44 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             }
         }
 
-        this.startingHashCode = this.editorPane.getText().hashCode();
-        this.startingTextLength = this.editorPane.getText().length();
+        markTextSaved();
         resetUndoHistory();     // Clear the Undo/Redo memory
         showEditStatus( false, "" );
     }
 
     private void filePasswordChange(ActionEvent e) {
     	//
+        if ( fileLoadInProgress() ) {
+            return;
+        }
         PasswordChangeDialog pwcd = new PasswordChangeDialog( this);
         pwcd.setExpectedMD5Hash( file.getMD5Hash() );    // to confirm old password
         pwcd.setFrameTitle( file.getBasename() + file.getExt() );
         pwcd.setVisible( true );
         char[] tmpPasswdArray = pwcd.getPasswd();
 
+        // If the editor has no changes, the file on disk only needs its header
+        // rewritten (data key re-wrapped with the new password)
+        boolean headerOnly = ( file.getFullpath() != null ) && new File( file.getFullpath() ).isFile()
+            && !unsavedEditorChanges();
         boolean cancelPasswordChange = true;
         if ( tmpPasswdArray.length != 0 ) {
             // Confirm OK to save file, in order to complete password change
             int response;
-            String confirmationMessage =
-                "To complete the password change for file: " + file.getBasename() + file.getExt() + ",\n" +
-                "the current contents of the editor will be encrypted with the\n" +
-                "new password and saved.\n\n" +
-                "OK to Save File using new password?";
+            String confirmationMessage;
+            if ( headerOnly ) {
+                confirmationMessage =
+                    "To complete the password change for file: " + file.getBasename() + file.getExt() + ",\n" +
+                    "the file will be updated to open with the new password.\n\n" +
+                    "OK to Update File using new password?";
+            }
+            else {
+                confirmationMessage =
+                    "To complete the password change for file: " + file.getBasename() + file.getExt() + ",\n" +
+                    "the current contents of the editor will be encrypted with the\n" +
+                    "new password and saved.\n\n" +
+                    "OK to Save File using new password?";
+            }
             JOptionPane optionPane = new JOptionPane();
             response = optionPane.showConfirmDialog(null, confirmationMessage, "Confirm Action",
                 JOptionPane.OK_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
@@ -1091,6 +1354,15 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         // Note: There were two opportunities to cancel password change, in the
         //       PasswordChangeDialog and the file-save confirmation dialog.
         if ( !cancelPasswordChange ) {
+            PasswordKey newPasswordKey = headerOnly ? changePasswordInPlace( tmpPasswdArray ) : null;
+            if ( newPasswordKey != null ) {
+                logger.out("Changed password for file (header only): " + file.getFullpath() );
+                file.setPassword( tmpPasswdArray );
+                file.setPasswordKey( newPasswordKey );
+                Arrays.fill( tmpPasswdArray, (char) ' ');   // blank out password
+                showEditStatus( false, "(New PW)" );
+                return;
+            }
             // Save the file, using the new password
             logger.out("Changed password for file: " + file.getFullpath() );
             file.setPassword( tmpPasswdArray );
@@ -1108,6 +1380,32 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         }
     }
 
+    // changePasswordInPlace() - Re-wrap the file's data key with newPassword,
+    //   rewriting only the file header.  Returns the new password key, or null
+    //   if the file can't be changed in place (older file version); the caller
+    //   then saves the file.
+    private PasswordKey changePasswordInPlace( char[] newPassword ) {
+        char[] oldPassword = file.getPassword();
+        StringBuilder errorMsg = new StringBuilder();
+        long startTime = System.currentTimeMillis();
+        try {
+            PasswordKey newPasswordKey = EncryptedFileWriter.changePassword( new File( file.getFullpath() ),
+                oldPassword, newPassword, kdfIterations(), errorMsg );
+            if ( newPasswordKey != null ) {
+                logger.out("Re-wrapped data key in " + (System.currentTimeMillis() - startTime) + " ms");
+                return newPasswordKey;
+            }
+            logger.out("Can't change password in place, saving file: " + errorMsg );
+        } catch (IOException ioe) {
+            logger.out("IO Error changing password in place, saving file: " + ioe.getMessage() );
+        } catch (java.security.GeneralSecurityException gse) {
+            logger.out("Security Error changing password in place, saving file: " + gse.getMessage() );
+        } finally {
+            Arrays.fill( oldPassword, (char) ' ');      // blank out password
+        }
+        return null;
+    }
+
     private void editUndo(ActionEvent e) {
         try {
             undoManager.undo();
@@ -1223,6 +1521,9 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
 
     private void editFindReplace() {
         //
+        if ( fileLoadInProgress() ) {
+            return;     // Editor is read-only until the load is done
+        }
         if (textSearcher == null ) {
             textSearcher = new TextSearcher( editorPane );
         }
@@ -1235,6 +1536,28 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         menuEditFindNext.setEnabled( true );
     }
 
+    // editGoToLine() - Move the caret to the start of a line
+    private void editGoToLine() {
+        int lineCount = lineIndex.getLineCount();
+        int currentLine = lineIndex.getLineOfOffset( editorPane.getCaretPosition() ) + 1;
+        String msg = "Line number (1 - " + lineCount + "):";
+        Object value = JOptionPane.showInputDialog( this, msg, "Go To Line", JOptionPane.PLAIN_MESSAGE,
+            null, null, Integer.toString( currentLine ) );
+        if ( value == null ) {
+            return;     // Cancelled
+        }
+        int line;
+        try {
+            line = Integer.parseInt( value.toString().trim() );
+        } catch (NumberFormatException nfe) {
+            JOptionPane.showMessageDialog( this, "\"" + value + "\" is not a line number.", "Go To Line", JOptionPane.PLAIN_MESSAGE );
+            return;
+        }
+        line = Math.max( 1, Math.min( line, lineCount ) );
+        editorPane.setCaretPosition( lineIndex.getLineStart( line - 1 ) );
+        editorPane.grabFocus();
+    }
+
     private void settingsTextColor() {
     	Color textColor = JColorChooser.showDialog( this, "Editor Text Color", editorPane.getForeground() );
     	if ( textColor != null ) {
@@ -1300,6 +1623,19 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         applySettingsAllWindows();
     }
 
+    // Plain Text Mode Enable/Disable (Checkbox).  An editor window keeps the
+    // mode it was created with, the setting applies to new windows.
+    private void settingsPlainTextMode() {
+        if ( menuSettingsPlainTextChkbox.getState() == true ) { // Enable
+            settings.setProperty("editor.plain.mode", "1");
+        }
+        else {                                                  // Disabled
+            settings.setProperty("editor.plain.mode", "0");
+        }
+        applySettingsAllWindows();
+        editStatusField.setText("Plain text mode setting applies to new windows.");
+    }
+
     // Select desired Window Style (Look and Feel)
     private void settingsWindowStyle() {
     	WindowStyleDialog winStyleDialog = new WindowStyleDialog( this );
@@ -1540,6 +1876,73 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         editorPane.setComponentPopupMenu(menuEditorPopup);
     }
 
+    // ChunkLoader - Decrypts the remaining chunks of a chunked encrypted file on
+    // a background thread, and appends them to the editor Document on the EDT.
+    private class ChunkLoader extends SwingWorker<Void, Void> {
+        private EncryptedFileReader reader;
+        private Document doc;
+        private int chunksLoaded;
+        private long startTime;
+
+        ChunkLoader( EncryptedFileReader reader, Document doc ) {
+            this.reader = reader;
+            this.doc = doc;
+            this.chunksLoaded = reader.getChunksRead();
+            this.startTime = System.currentTimeMillis();
+        }
+
+        protected Void doInBackground() throws Exception {
+            try {
+                String text;
+                while ( !isCancelled() && (text = reader.nextChunk()) != null ) {
+                    final String chunkText = text;
+                    // Not publish(), done() may run before the last process().
+                    // invokeLater() keeps the chunks in order and ahead of done().
+                    SwingUtilities.invokeLater( new Runnable() {
+                        public void run() {
+                            appendChunk( chunkText );
+                        }
+                    });
+                }
+            } finally {
+                reader.close();     // Here, not in done(): after cancel() we may still be reading
+            }
+            return null;
+        }
+
+        private void appendChunk( String text ) {
+            if ( isCancelled() ) {
+                return;
+            }
+            try {
+                doc.insertString( doc.getLength(), text, null );
+            } catch (BadLocationException ble) {
+                ble.printStackTrace();      // Not expected, inserting at end
+            }
+            chunksLoaded++;
+            fileStatusField.setText("Loading ... " + (100 * chunksLoaded / reader.getChunkCount()) + "%");
+        }
+
+        protected void done() {
+            if ( isCancelled() ) {
+                return;
+            }
+            Throwable error = null;
+            try {
+                get();
+            } catch (java.util.concurrent.ExecutionException ee) {
+                error = ee.getCause();
+            } catch (InterruptedException ie) {
+                error = ie;
+            }
+            if ( error == null ) {
+                logger.out("Loaded " + reader.getChunkCount() + " chunks in " + (System.currentTimeMillis() - startTime)
+                    + " ms, parallel crypto: " + parallelCryptoEnabled() );
+            }
+            chunkLoadFinished( error );
+        }
+    }
+
     private void initComponents() {
         // JFormDesigner - Component initialization - DO NOT MODIFY  //GEN-BEGIN:initComponents
         menuBar1 = new JMenuBar();
@@ -1566,12 +1969,14 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         menuEditFind = new JMenuItem();
         menuEditFindNext = new JMenuItem();
         menuEditFindReplace = new JMenuItem();
+        menuEditGoToLine = new JMenuItem();
         menuSettings = new JMenu();
         menuSettingsTextColor = new JMenuItem();
         menuSettingsBackgroundColor = new JMenuItem();
         menuSettingsTextFont = new JMenuItem();
         menuSettingsTabSize = new JMenuItem();
         menuSettingsLineWrapChkbox = new JCheckBoxMenuItem();
+        menuSettingsPlainTextChkbox = new JCheckBoxMenuItem();
         menuSettingsWindowStyle = new JMenuItem();
         MenuSettingsDebugLogChkbox = new JCheckBoxMenuItem();
         menuSettingsRestoreDefaults = new JMenuItem();
@@ -1592,9 +1997,10 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         toolbarHelp = new JButton();
         scrollPane1 = new JScrollPane();
         noWrapPanel = new JPanel();
-        editorPane = new JTextPane();
+        editorPane = createEditorPane();
         fileStatusField = new JLabel();
         editStatusField = new JLabel();
+        caretStatusField = new JLabel();
 
         //======== this ========
         setTitle("DeadboltEdit");
@@ -1607,9 +2013,9 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         });
         Container contentPane = getContentPane();
         contentPane.setLayout(new GridBagLayout());
-        ((GridBagLayout)contentPane.getLayout()).columnWidths = new int[] {10, 347, 0, 5, 0};
+        ((GridBagLayout)contentPane.getLayout()).columnWidths = new int[] {10, 347, 0, 0, 5, 0};
         ((GridBagLayout)contentPane.getLayout()).rowHeights = new int[] {0, 0, 0, 0};
-        ((GridBagLayout)contentPane.getLayout()).columnWeights = new double[] {0.0, 1.0, 1.0, 0.0, 1.0E-4};
+        ((GridBagLayout)contentPane.getLayout()).columnWeights = new double[] {0.0, 1.0, 1.0, 0.0, 0.0, 1.0E-4};
         ((GridBagLayout)contentPane.getLayout()).rowWeights = new double[] {0.0, 1.0, 0.0, 1.0E-4};
 
         //======== menuBar1 ========
@@ -1849,6 +2255,17 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                     }
                 });
                 menuEdit.add(menuEditFindReplace);
+
+                //---- menuEditGoToLine ----
+                menuEditGoToLine.setText("Go To Line ...");
+                menuEditGoToLine.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_L, Toolkit.getDefaultToolkit().getMenuShortcutKeyMask()));
+                menuEditGoToLine.addActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        editGoToLine();
+                    }
+                });
+                menuEdit.add(menuEditGoToLine);
             }
             menuBar1.add(menuEdit);
 
@@ -1909,6 +2326,17 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
                     }
                 });
                 menuSettings.add(menuSettingsLineWrapChkbox);
+
+                //---- menuSettingsPlainTextChkbox ----
+                menuSettingsPlainTextChkbox.setText("Plain Text Mode");
+                menuSettingsPlainTextChkbox.setToolTipText("Enable/Disable plain text editing, lighter for large files (new windows)");
+                menuSettingsPlainTextChkbox.addActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        settingsPlainTextMode();
+                    }
+                });
+                menuSettings.add(menuSettingsPlainTextChkbox);
                 menuSettings.addSeparator();
 
                 //---- menuSettingsWindowStyle ----
@@ -2118,7 +2546,7 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             });
             toolBar1.add(toolbarHelp);
         }
-        contentPane.add(toolBar1, new GridBagConstraints(1, 0, 2, 1, 0.0, 0.0,
+        contentPane.add(toolBar1, new GridBagConstraints(1, 0, 3, 1, 0.0, 0.0,
             GridBagConstraints.CENTER, GridBagConstraints.BOTH,
             new Insets(0, 0, 5, 5), 0, 0));
 
@@ -2133,7 +2561,7 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
             }
             scrollPane1.setViewportView(noWrapPanel);
         }
-        contentPane.add(scrollPane1, new GridBagConstraints(1, 1, 2, 1, 0.0, 0.0,
+        contentPane.add(scrollPane1, new GridBagConstraints(1, 1, 3, 1, 0.0, 0.0,
             GridBagConstraints.CENTER, GridBagConstraints.BOTH,
             new Insets(0, 0, 5, 5), 0, 0));
 
@@ -2152,6 +2580,14 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
         contentPane.add(editStatusField, new GridBagConstraints(2, 2, 1, 1, 0.0, 0.0,
             GridBagConstraints.CENTER, GridBagConstraints.BOTH,
             new Insets(0, 0, 0, 5), 0, 0));
+
+        //---- caretStatusField ----
+        caretStatusField.setText("Ln 1, Col 1");
+        caretStatusField.setForeground(Color.blue);
+        caretStatusField.setToolTipText("Caret line and column");
+        contentPane.add(caretStatusField, new GridBagConstraints(3, 2, 1, 1, 0.0, 0.0,
+            GridBagConstraints.CENTER, GridBagConstraints.BOTH,
+            new Insets(0, 0, 0, 5), 0, 0));
         setSize(500, 400);
         setLocationRelativeTo(getOwner());
         // JFormDesigner - End of component initialization  //GEN-END:initComponents
@@ -2183,12 +2619,14 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
     private JMenuItem menuEditFind;
     private JMenuItem menuEditFindNext;
     private JMenuItem menuEditFindReplace;
+    private JMenuItem menuEditGoToLine;
     private JMenu menuSettings;
     private JMenuItem menuSettingsTextColor;
     private JMenuItem menuSettingsBackgroundColor;
     private JMenuItem menuSettingsTextFont;
     private JMenuItem menuSettingsTabSize;
     private JCheckBoxMenuItem menuSettingsLineWrapChkbox;
+    private JCheckBoxMenuItem menuSettingsPlainTextChkbox;
     private JMenuItem menuSettingsWindowStyle;
     private JCheckBoxMenuItem MenuSettingsDebugLogChkbox;
     private JMenuItem menuSettingsRestoreDefaults;
@@ -2209,13 +2647,14 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
     private JButton toolbarHelp;
     private JScrollPane scrollPane1;
     private JPanel noWrapPanel;
-    private JTextPane editorPane;
+    private JTextComponent editorPane;
     private JLabel fileStatusField;
     private JLabel editStatusField;
+    private JLabel caretStatusField;
     // JFormDesigner - End of variables declaration  //GEN-END:variables
 
     // Definitions for Editor Popup Menu
-    private JPopupMenu menuEditorPopup;   // Popup Menu for JTextPane
+    private JPopupMenu menuEditorPopup;   // Popup Menu for editorPane
     private JMenuItem editorPopupMenuItemCut;
     private JMenuItem editorPopupMenuItemCopy;
     private JMenuItem editorPopupMenuItemPaste;
@@ -2223,22 +2662,27 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
 
     private FileInfo file = null;   // Class defines file variables
     
-    private UndoManager undoManager = null;
+    private UndoHistory undoManager = null;
+    private UndoSpillFile undoSpillFile = null;
 
     private int startingHashCode;       // Used to detect editor changes
     private int startingTextLength;     // Used to detect editor changes
+    private long savedGeneration;       // EditorDocument edit generation when saved
+    private long savedChecksum;         // EditorDocument checksum when saved
+    private long checkedGeneration;     // Last generation compared with startingHashCode
     private String activeDirectory = null;     // For file dialogs.
     private int editorID;      // Unique ID of editor window, used as index into Vector of open editors
+    private boolean plainTextMode;      // JTextArea and PlainEditorDocument, see createEditorPane()
     private boolean documentChangeStatusShown = false;    // Indicates "Edited" status is showing
     private boolean redoInformationShown = false;  // Indicates Redo Information shown in Edit Menu
-
-    //byte[] encryptionSignature = {'U', '2', 'F', 's', 'd', 'G', 'V', 'k', 'X', '1'};
-    private String encryptionSignature = "U2FsdGVkX1";
-    //byte[] fileSignature = "DeadboltEdit Encrypted Data - Do Not Edit :\n".getBytes();
-    //String fileSignature = "DeadboltEdit Encrypted Data - Do Not Edit :";
-    private String fileSignature = "DeadboltEdit Encrypted ~~ Do Not Modify :";
+    private javax.swing.Timer statusRefreshTimer = null;  // Coalesces status refreshes
+    private boolean editStatusPending = false;  // Document changed since the last refreshEditStatus()
+    private LineIndex lineIndex = null;     // Line starts of the editor Document
+    private long documentEventCount = 0;    // For debug log: document events ...
+    private long statusRefreshCount = 0;    // ... and the status refreshes they caused
 
     private TextSearcher textSearcher = null;   // Search and Replace Class
+    private ChunkLoader chunkLoader = null;     // Background load of a chunked file
 
     // -------- Static --------------------------------------------------
     static private int openEditorCount = 0; //Count of open editor windows
@@ -2254,6 +2698,7 @@ public class DeadboltEdit extends JFrame implements DocumentListener, UndoableEd
     static private Properties settings = null;
 
     static final private String programVersion = "3.50";    // Program version
+    static final private int STATUS_REFRESH_DELAY = 16;     // ms, about one frame
 
 
     public static void main(String args[]) {
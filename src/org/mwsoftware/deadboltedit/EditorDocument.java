@@ -0,0 +1,55 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * EditorDocument.java - The Document of an editor window.                  *
+ *                                                                          *
+ * An editor window edits a StyledEditorDocument in a JTextPane, or in      *
+ * plain text mode (setting editor.plain.mode) a PlainEditorDocument in a   *
+ * JTextArea.  The plain document has no per-paragraph attributes, so it    *
+ * takes less memory per line.  In both modes the tab size is a Document    *
+ * property (PlainDocument.tabSizeAttribute), see StyledTextEditorKit.      *
+ *                                                                          *
+ * Both keep their text in a TrackingContent (a PieceTableContent), for     *
+ * cheap unsaved-change checks and snapshots.                               *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import javax.swing.text.Document;
+
+interface EditorDocument extends Document {
+
+    // getEditGeneration() - Changes each time the text changes
+    public long getEditGeneration();
+
+    // getChecksum() - Order-independent checksum of the text
+    public long getChecksum();
+
+    // textHashCode() - Hash of the text, same as String.hashCode() of the
+    //   Document text, computed without copying the text
+    public int textHashCode();
+
+    // snapshot() - The text as it is now, unchanged by later edits, so it can
+    //   be read on another thread (see PieceTableContent)
+    public PieceTableContent.Snapshot snapshot();
+
+    // setUndoSpillFile() - Keep large texts of old undo edits in an encrypted
+    //   temp file, see UndoSpillFile
+    public void setUndoSpillFile( UndoSpillFile undoSpillFile );
+}
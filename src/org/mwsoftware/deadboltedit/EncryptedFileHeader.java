@@ -0,0 +1,342 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * EncryptedFileHeader.java - Reads and formats the text header line that   *
+ *                            begins every DeadboltEdit encrypted file.     *
+ *                                                                          *
+ * Header format, versions 0 and 1 (read only):                             *
+ *   DeadboltEdit Encrypted ~~ Do Not Modify :<version>:<payload MD5>:\n    *
+ *                                                                          *
+ * The payload MD5 is the hex MD5 hash of the payload that follows the      *
+ * header line.  The payload is the OpenSSL salted envelope, stored as:     *
+ *   version 0 - Base64 text                                                *
+ *   version 1 - binary                                                     *
+ *                                                                          *
+ * Header format, version 2 (chunked AES-GCM, see ChunkCipher):             *
+ *   DeadboltEdit Encrypted ~~ Do Not Modify :2:<KDF iterations>:<salt>:    *
+ *   <nonce>:<chunk size>:<index offset>:\n                                 *
+ *                                                                          *
+ * Header format, version 3 (version 2 with a key check value):             *
+ *   DeadboltEdit Encrypted ~~ Do Not Modify :3:<KDF iterations>:<salt>:    *
+ *   <nonce>:<chunk size>:<index offset>:<key check>:\n                     *
+ *                                                                          *
+ * Header format, version 4 (version 3 with a wrapped data key):            *
+ *   DeadboltEdit Encrypted ~~ Do Not Modify :4:<KDF iterations>:<salt>:    *
+ *   <nonce>:<chunk size>:<index offset>:<key check>:<wrapped key>:\n       *
+ *                                                                          *
+ * All version 2, 3 and 4 fields are fixed-width hex, so the header can be  *
+ * updated in place.  The chunk records follow the header, each a 4-byte    *
+ * length and the encrypted chunk; the chunk index record is at             *
+ * <index offset>.  The key check value lets a wrong password be rejected   *
+ * without reading any chunk (see ChunkCipher.keyCheckValue()).             *
+ *                                                                          *
+ * In version 2 and 3 the chunks are encrypted with the password key.  In   *
+ * version 4 they are encrypted with a random data key, which is stored     *
+ * wrapped (encrypted) with the password key.  A password change only       *
+ * re-wraps the data key and rewrites the header.                           *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class EncryptedFileHeader {
+    //
+    //   --- Constants, package scope ---
+    protected static final String FILE_SIGNATURE = "DeadboltEdit Encrypted ~~ Do Not Modify :";
+    // Base64 encoding of the OpenSSL "Salted__" envelope prefix
+    protected static final String ENCRYPTION_SIGNATURE = "U2FsdGVkX1";
+    protected static final int VERSION_BASE64 = 0;
+    protected static final int VERSION_BINARY = 1;
+    protected static final int VERSION_CHUNKED = 2;
+    protected static final int VERSION_KEY_CHECK = 3;
+    protected static final int VERSION_WRAPPED_KEY = 4;
+    // Version written by this program
+    protected static final int CURRENT_VERSION = VERSION_WRAPPED_KEY;
+    // Sanity limit for KDF iterations read from a header
+    protected static final int MAX_KDF_ITERATIONS = 50000000;
+    // The header line is short, anything longer than this is not one of our files
+    protected static final int MAX_HEADER_LENGTH = 1024;
+    //
+    //   --- End Constants ---
+
+    // Header for a version 0 or 1 file
+    public EncryptedFileHeader( int version, String payloadMD5 ) {
+        this.version = version;
+        this.payloadMD5 = payloadMD5;
+        this.length = 0;
+    }
+
+    // Header for a chunked file, version 4 (version 3 if wrappedKey is null,
+    // version 2 if keyCheck is also null)
+    public EncryptedFileHeader( int kdfIterations, byte[] salt, byte[] nonce, int chunkSize,
+            byte[] keyCheck, byte[] wrappedKey ) {
+        if ( wrappedKey != null ) {
+            this.version = VERSION_WRAPPED_KEY;
+        }
+        else {
+            this.version = ( keyCheck == null ) ? VERSION_CHUNKED : VERSION_KEY_CHECK;
+        }
+        this.keyCheck = ( keyCheck == null ) ? null : keyCheck.clone();
+        this.wrappedKey = ( wrappedKey == null ) ? null : wrappedKey.clone();
+        this.kdfIterations = kdfIterations;
+        this.salt = salt.clone();
+        this.nonce = nonce.clone();
+        this.chunkSize = chunkSize;
+        this.indexOffset = 0;
+        this.length = 0;
+    }
+
+    // read() - Read and parse the header line at the start of the channel.
+    //   Returns null if the header is missing or malformed, and appends the
+    //   reason to errorMsg (may be null).
+    public static EncryptedFileHeader read( FileChannel channel, StringBuilder errorMsg ) throws IOException {
+        ByteBuffer buf = ByteBuffer.allocate( MAX_HEADER_LENGTH );
+        channel.position( 0 );
+        while ( buf.hasRemaining() && channel.read( buf ) > 0 ) {
+            // read until buffer full or EOF
+        }
+        byte[] inBuf = new byte[buf.position()];
+        buf.flip();
+        buf.get( inBuf );
+
+        if (! PgmUtils.bufferHasString( inBuf, FILE_SIGNATURE) ) {
+            appendError( errorMsg, "File is missing File Signature string in header.");
+            return null;
+        }
+        int headerLength = 0;
+        for (int i=0; i<inBuf.length; i++ ){
+            if ( inBuf[i] == (byte) '\n' ) {
+                headerLength = i + 1;
+                break;
+            }
+        }
+        if ( headerLength == 0 ) {
+            appendError( errorMsg, "Error - End of file header not found.");
+            return null;
+        }
+        String[] fields = new String( inBuf, 0, (headerLength - 1), "UTF-8" ).split( ":" );
+        if ( fields.length < 3 ) {
+            appendError( errorMsg, "Error - Did not get expected fields in file header.");
+            return null;
+        }
+        if (BuildConfig.DEBUG) {
+            for (int i=0; i<fields.length; i++ ){
+                System.err.println("Debug: Header Field" + i + " = " + fields[i] );
+            }
+        }
+        int version;
+        try {
+            version = Integer.parseInt( fields[1] );
+        } catch (NumberFormatException nfe) {
+            appendError( errorMsg, "Error - Invalid version field in file header.");
+            return null;
+        }
+        EncryptedFileHeader header;
+        if ( (version == VERSION_BASE64) || (version == VERSION_BINARY) ) {
+            if ( fields.length != 3 ) {
+                appendError( errorMsg, "Error - Did not get expected fields in file header.");
+                return null;
+            }
+            header = new EncryptedFileHeader( version, fields[2] );
+        }
+        else if ( (version == VERSION_CHUNKED) || (version == VERSION_KEY_CHECK)
+                || (version == VERSION_WRAPPED_KEY) ) {
+            header = parseChunked( version, fields, errorMsg );
+            if ( header == null ) {
+                return null;
+            }
+        }
+        else {
+            appendError( errorMsg, "Error - Unsupported file version " + fields[1] + " (created by a newer DeadboltEdit?).");
+            return null;
+        }
+        header.length = headerLength;
+        return header;
+    }
+
+    // parseChunked() - Version 2, 3 and 4 header fields
+    private static EncryptedFileHeader parseChunked( int version, String[] fields, StringBuilder errorMsg ) {
+        // Version 2 has 7 fields, each later version adds one
+        int fieldCount = 7 + (version - VERSION_CHUNKED);
+        if ( fields.length != fieldCount || fields[3].length() != 2 * ChunkCipher.SALT_LENGTH
+                || fields[4].length() != 2 * ChunkCipher.NONCE_LENGTH
+                || (version >= VERSION_KEY_CHECK && fields[7].length() != 2 * ChunkCipher.KEY_CHECK_LENGTH)
+                || (version >= VERSION_WRAPPED_KEY && fields[8].length() != 2 * ChunkCipher.WRAPPED_KEY_LENGTH) ) {
+            appendError( errorMsg, "Error - Did not get expected fields in file header.");
+            return null;
+        }
+        try {
+            int kdfIterations = (int) Long.parseLong( fields[2], 16 );
+            int chunkSize = (int) Long.parseLong( fields[5], 16 );
+            if ( kdfIterations < 1 || kdfIterations > MAX_KDF_ITERATIONS || chunkSize < 1 ) {
+                appendError( errorMsg, "Error - Invalid value in file header.");
+                return null;
+            }
+            byte[] keyCheck = ( version >= VERSION_KEY_CHECK ) ? fromHex( fields[7] ) : null;
+            byte[] wrappedKey = ( version >= VERSION_WRAPPED_KEY ) ? fromHex( fields[8] ) : null;
+            EncryptedFileHeader header = new EncryptedFileHeader( kdfIterations,
+                fromHex( fields[3] ), fromHex( fields[4] ), chunkSize, keyCheck, wrappedKey );
+            header.indexOffset = Long.parseLong( fields[6], 16 );
+            return header;
+        } catch (NumberFormatException nfe) {
+            appendError( errorMsg, "Error - Invalid value in file header.");
+            return null;
+        }
+    }
+
+    // format() - Return the header line, including the trailing newline.
+    //   A chunked file header is always the same length.
+    public String format() {
+        if ( isChunked() ) {
+            String line = FILE_SIGNATURE + version + ":" + toHex( kdfIterations, 8 ) + ":" + toHex( salt ) + ":"
+                + toHex( nonce ) + ":" + toHex( chunkSize, 8 ) + ":" + toHex( indexOffset, 16 ) + ":";
+            if ( keyCheck != null ) {
+                line += toHex( keyCheck ) + ":";
+            }
+            if ( wrappedKey != null ) {
+                line += toHex( wrappedKey ) + ":";
+            }
+            return line + "\n";
+        }
+        return FILE_SIGNATURE + version + ":" + payloadMD5 + ":\n";
+    }
+
+    // isBase64() - True if payload is Base64 text (legacy format)
+    public boolean isBase64() {
+        return ( version == VERSION_BASE64 );
+    }
+
+    public boolean isChunked() {
+        return ( version == VERSION_CHUNKED ) || ( version == VERSION_KEY_CHECK )
+            || ( version == VERSION_WRAPPED_KEY );
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public String getPayloadMD5() {
+        return payloadMD5;
+    }
+
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+
+    public byte[] getSalt() {
+        return salt.clone();
+    }
+
+    public byte[] getNonce() {
+        return nonce.clone();
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    public long getIndexOffset() {
+        return indexOffset;
+    }
+
+    // Key check value, null if the header doesn't have one (version 2)
+    public byte[] getKeyCheck() {
+        return ( keyCheck == null ) ? null : keyCheck.clone();
+    }
+
+    // Wrapped data key, null if the chunks are encrypted with the password
+    // key (version 2 and 3)
+    public byte[] getWrappedKey() {
+        return ( wrappedKey == null ) ? null : wrappedKey.clone();
+    }
+
+    // setPasswordKey() - Replace the password dependent fields of a version 4
+    //   header (password change).  The header length doesn't change.
+    public void setPasswordKey( int kdfIterations, byte[] salt, byte[] keyCheck, byte[] wrappedKey ) {
+        this.kdfIterations = kdfIterations;
+        this.salt = salt.clone();
+        this.keyCheck = keyCheck.clone();
+        this.wrappedKey = wrappedKey.clone();
+    }
+
+    public void setIndexOffset( long indexOffset ) {
+        this.indexOffset = indexOffset;
+    }
+
+    // Length of header line in bytes, including the newline.  The payload
+    // begins at this file offset.
+    public int getLength() {
+        return length;
+    }
+
+    private static String toHex( long value, int digits ) {
+        StringBuilder hex = new StringBuilder( Long.toHexString( value ) );
+        while ( hex.length() < digits ) {
+            hex.insert( 0, '0' );
+        }
+        return hex.toString();
+    }
+
+    private static String toHex( byte[] bytes ) {
+        StringBuilder hex = new StringBuilder( 2 * bytes.length );
+        for (int i=0; i<bytes.length; i++) {
+            hex.append( Character.forDigit( (bytes[i] >> 4) & 0x0F, 16 ) );
+            hex.append( Character.forDigit( bytes[i] & 0x0F, 16 ) );
+        }
+        return hex.toString();
+    }
+
+    private static byte[] fromHex( String hex ) {
+        byte[] bytes = new byte[hex.length() / 2];
+        for (int i=0; i<bytes.length; i++) {
+            int hi = Character.digit( hex.charAt( 2 * i ), 16 );
+            int lo = Character.digit( hex.charAt( 2 * i + 1 ), 16 );
+            if ( hi < 0 || lo < 0 ) {
+                throw new NumberFormatException( "Invalid hex digit" );
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return bytes;
+    }
+
+    private static void appendError( StringBuilder errorMsg, String msg ) {
+        if ( errorMsg != null ) {
+            errorMsg.append( msg );
+        }
+    }
+
+//  ---------------------------------------------
+
+    private int version;
+    private String payloadMD5;      // MD5 hash of payload bytes, as written by PgmUtils
+    // Version 2
+    private int kdfIterations;      // PBKDF2 iterations
+    private byte[] salt;            // PBKDF2 salt
+    private byte[] nonce;           // Per-file part of chunk IVs
+    private int chunkSize;          // Max. plaintext bytes per chunk
+    private long indexOffset;       // File offset of chunk index record
+    // Version 3
+    private byte[] keyCheck;        // Key check value
+    // Version 4
+    private byte[] wrappedKey;      // Data key, wrapped with the password key
+    private int length;             // Header length in bytes (incl. newline)
+}
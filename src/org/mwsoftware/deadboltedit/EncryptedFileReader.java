@@ -0,0 +1,504 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * EncryptedFileReader.java - Streaming reader for DeadboltEdit encrypted   *
+ *                            files.                                        *
+ *                                                                          *
+ * The payload is streamed from a FileChannel through the Base64 decoder    *
+ * (legacy files only), a CipherInputStream and a UTF-8 CharsetDecoder into *
+ * a Document, so only small fixed-size buffers of the file are held in     *
+ * memory at one time.  The payload MD5 (file header) and the text MD5      *
+ * (first line of the decrypted data) are computed while the data streams   *
+ * past.                                                                    *
+ *                                                                          *
+ * A chunked (version 2) file is read a chunk at a time instead: each chunk *
+ * is decrypted and authenticated on its own, so the first chunk can be     *
+ * shown before the rest of the file has been read.  Chunks after the first *
+ * are read ahead and decrypted in parallel on the ForkJoinPool (see        *
+ * setParallel()), and returned in order.                                   *
+ *                                                                          *
+ * The CipherEngine is chosen from the header version: BlowfishEngine for   *
+ * legacy files, ChunkCipher (AES-GCM) for chunked files.                   *
+ *                                                                          *
+ * Usage:                                                                   *
+ *   EncryptedFileReader reader = new EncryptedFileReader( file );          *
+ *   if ( reader.readHeader() ) {                                           *
+ *       if ( reader.isChunked() ) {                                        *
+ *           result = reader.beginChunks( password );                       *
+ *           while ( (text = reader.nextChunk()) != null ) ...              *
+ *       } else {                                                           *
+ *           result = reader.decrypt( password, doc, editorKit );           *
+ *       }                                                                  *
+ *   }                                                                      *
+ *   reader.close();                                                        *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.security.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.CipherInputStream;
+import javax.crypto.SecretKey;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.EditorKit;
+
+public class EncryptedFileReader {
+    //
+    //   --- Constants, package scope ---
+    // Results from decrypt() and beginChunks()
+    protected static final int DECRYPT_OK = 0;
+    protected static final int DECRYPT_BAD_PASSWORD = 1;
+    protected static final int DECRYPT_CORRUPT = 2;
+    //
+    protected static final int BUFFER_SIZE = 64 * 1024;
+    // Embedded text MD5 is at most 32 hex digits followed by a newline
+    private static final int MAX_MD5_LINE = 33;
+    //
+    //   --- End Constants ---
+
+    public EncryptedFileReader( File f ) throws IOException {
+        channel = new FileInputStream( f ).getChannel();
+        header = null;
+        errorMessage = new StringBuilder();
+        parallel = true;
+        passwordKey = null;
+        engine = null;
+        readAhead = new ArrayDeque<Future<String>>();
+    }
+
+    // setParallel() - Decrypt chunks on all cores (default), or only on the
+    //   calling thread
+    public void setParallel( boolean parallel ) {
+        this.parallel = parallel;
+    }
+
+    // readHeader() - Read and check the file header, and the signature at the
+    // start of the encrypted payload.  Returns false if file format is incorrect,
+    // getErrorMessage() has the reason.
+    public boolean readHeader() throws IOException {
+        errorMessage.setLength( 0 );
+        header = EncryptedFileHeader.read( channel, errorMessage );
+        if ( header == null ) {
+            return false;
+        }
+        if ( header.isChunked() ) {
+            return true;        // Chunks are checked as they are decrypted
+        }
+        // Legacy payload is Base64 text, newer payload is the binary envelope
+        byte[] signature;
+        if ( header.isBase64() ) {
+            signature = EncryptedFileHeader.ENCRYPTION_SIGNATURE.getBytes( "US-ASCII" );
+        }
+        else {
+            signature = OpenSSLEnvelope.SALT_MAGIC;
+        }
+        ByteBuffer sigBuf = ByteBuffer.allocate( signature.length );
+        channel.position( header.getLength() );
+        while ( sigBuf.hasRemaining() && channel.read( sigBuf ) > 0 ) {
+            // read until buffer full or EOF
+        }
+        if (! Arrays.equals( sigBuf.array(), signature ) ) {
+            errorMessage.append("Encryption data block doesn't have correct signature string.");
+            return false;
+        }
+        return true;
+    }
+
+    // decrypt() - Decrypt the payload with password, inserting the text into doc
+    //   with kit.read() (which maps line endings and sets the document EndOfLine
+    //   property).  doc should be empty and not yet shown in an editor; on any
+    //   result other than DECRYPT_OK its contents must be discarded.
+    public int decrypt( char[] password, Document doc, EditorKit kit )
+            throws IOException, GeneralSecurityException, BadLocationException {
+        errorMessage.setLength( 0 );
+        channel.position( header.getLength() );
+        // Note: Channels.newInputStream().close() would close our channel, so the
+        //       stream chain is never closed here.  See close().
+        MessageDigest payloadDigest = MessageDigest.getInstance( "MD5" );
+        InputStream payloadIn = new DigestInputStream(
+            new BufferedInputStream( Channels.newInputStream( channel ), BUFFER_SIZE ), payloadDigest );
+        InputStream decodedIn = payloadIn;
+        if ( header.isBase64() ) {
+            decodedIn = Base64.getMimeDecoder().wrap( payloadIn );
+        }
+
+        byte[] prefix = new byte[OpenSSLEnvelope.PREFIX_LENGTH];
+        if ( readFully( decodedIn, prefix ) < prefix.length ) {
+            errorMessage.append("Encrypted data block is truncated.");
+            return DECRYPT_CORRUPT;
+        }
+        byte[] salt = OpenSSLEnvelope.saltFromPrefix( prefix );
+        if ( salt == null ) {
+            errorMessage.append("Encrypted data block doesn't have correct envelope prefix.");
+            return DECRYPT_CORRUPT;
+        }
+        engine = new BlowfishEngine( password, salt );
+        InputStream plainIn = new CipherInputStream( decodedIn, engine.createCipher( Cipher.DECRYPT_MODE, 0, true ) );
+
+        // First line is the MD5 hash of the text.  With a wrong password this is
+        // garbage, which lets us reject the password after the first few blocks
+        // instead of after decrypting the whole file.
+        String expectedMD5 = readMD5Line( plainIn );
+        if ( expectedMD5 == null ) {
+            errorMessage.append("Decrypted data doesn't begin with MD5 hash line.");
+            return badPasswordOrCorrupt( payloadIn, payloadDigest );
+        }
+
+        MessageDigest textDigest = MessageDigest.getInstance( "MD5" );
+        InputStream textIn = new DigestInputStream( plainIn, textDigest );
+        CharsetDecoder decoder = Charset.forName( "UTF-8" ).newDecoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        Reader textReader = new InputStreamReader( textIn, decoder );
+        try {
+            kit.read( textReader, doc, 0 );
+        } catch (IOException ioe) {
+            // CipherInputStream reports bad padding (wrong key) as an IOException
+            if ( ioe.getCause() instanceof GeneralSecurityException ) {
+                errorMessage.append("Decryption failed: " + ioe.getCause().getMessage() );
+                return badPasswordOrCorrupt( payloadIn, payloadDigest );
+            }
+            throw ioe;
+        }
+        if ( !payloadIsIntact( payloadIn, payloadDigest ) ) {
+            return DECRYPT_CORRUPT;
+        }
+        if ( !expectedMD5.equals( PgmUtils.MD5Hash( textDigest ) ) ) {
+            errorMessage.append("MD5 hash of decrypted text doesn't match embedded hash.");
+            return DECRYPT_BAD_PASSWORD;
+        }
+        return DECRYPT_OK;
+    }
+
+    // isChunked() - True for a chunked file, read with beginChunks() and
+    //   nextChunk() instead of decrypt()
+    public boolean isChunked() {
+        return header.isChunked();
+    }
+
+    // beginChunks() - Derive the key from password (and unwrap the data key),
+    //   read the chunk index and decrypt the first chunk.
+    public int beginChunks( char[] password ) throws IOException, GeneralSecurityException {
+        errorMessage.setLength( 0 );
+        if ( passwordKey != null ) {
+            passwordKey.destroy();      // From an earlier try
+        }
+        passwordKey = PasswordKey.derive( password, header.getSalt(), header.getKdfIterations() );
+        SecretKey key = passwordKey.getKey();
+        byte[] keyCheck = header.getKeyCheck();
+        if ( (keyCheck != null) && !ChunkCipher.keyMatches( key, keyCheck ) ) {
+            errorMessage.append("Key check value doesn't match (incorrect password).");
+            return DECRYPT_BAD_PASSWORD;
+        }
+        byte[] wrappedKey = header.getWrappedKey();
+        if ( wrappedKey != null ) {
+            try {
+                key = ChunkCipher.unwrapKey( key, wrappedKey );
+            } catch (InvalidKeyException ike) {
+                errorMessage.append("Data key failed integrity check.");
+                return DECRYPT_CORRUPT;
+            }
+        }
+        engine = new ChunkCipher( key, header.getNonce() );
+        index = null;
+        nextChunk = 0;
+        firstChunkText = null;
+        nextScheduled = 1;
+        readAhead.clear();
+
+        byte[] indexRecord = readRecord( header.getIndexOffset() );
+        byte[] firstRecord = readRecord( header.getLength() );
+        if ( indexRecord == null || firstRecord == null ) {
+            errorMessage.append("Chunk record is missing or has incorrect length.");
+            return DECRYPT_CORRUPT;
+        }
+        byte[] indexBytes = decryptRecord( ChunkCipher.INDEX_RECORD, true, indexRecord );
+        byte[] firstChunk = null;
+        if ( (indexBytes == null) && (keyCheck != null) ) {
+            errorMessage.append("Chunk index failed authentication.");
+            return DECRYPT_CORRUPT;
+        }
+        if ( indexBytes == null ) {
+            // Version 2: wrong key, or a damaged index.  The first chunk tells which.
+            firstChunk = decryptRecord( 0, false, firstRecord );
+            if ( firstChunk == null ) {
+                firstChunk = decryptRecord( 0, true, firstRecord );
+            }
+            if ( firstChunk == null ) {
+                errorMessage.append("Chunks failed authentication (incorrect password).");
+                return DECRYPT_BAD_PASSWORD;
+            }
+            Arrays.fill( firstChunk, (byte) 0 );
+            errorMessage.append("Chunk index failed authentication.");
+            return DECRYPT_CORRUPT;
+        }
+        try {
+            index = ChunkIndex.fromBytes( indexBytes );
+            checkIndex();
+            firstChunk = decryptRecord( 0, (index.getCount() == 1), firstRecord );
+            if ( firstChunk == null ) {
+                errorMessage.append("Chunk 0 failed authentication.");
+                return DECRYPT_CORRUPT;
+            }
+            firstChunkText = chunkText( 0, firstChunk );
+        } catch (IOException ioe) {
+            errorMessage.append( ioe.getMessage() );
+            index = null;
+            return DECRYPT_CORRUPT;
+        }
+        return DECRYPT_OK;
+    }
+
+    // nextChunk() - Text of the next chunk, or null after the last chunk.
+    //   Throws IOException if the chunk is damaged.
+    public String nextChunk() throws IOException, GeneralSecurityException {
+        if ( !hasMoreChunks() ) {
+            return null;
+        }
+        String text;
+        if ( nextChunk == 0 ) {
+            text = firstChunkText;      // Decrypted by beginChunks()
+            firstChunkText = null;
+        }
+        else {
+            int window = parallel ? ChunkCipher.parallelWindow() : 1;
+            while ( (readAhead.size() < window) && (nextScheduled < index.getCount()) ) {
+                readAhead.add( scheduleChunk( nextScheduled ) );
+                nextScheduled++;
+            }
+            text = ChunkCipher.getResult( readAhead.remove() );
+        }
+        nextChunk++;
+        return text;
+    }
+
+    // scheduleChunk() - Read the chunk record (here, so file reads stay in order)
+    //   and start decrypting it.
+    private Future<String> scheduleChunk( final int chunk ) throws IOException {
+        final byte[] record = readRecord( index.getOffset( chunk ) );
+        final boolean last = ( chunk == index.getCount() - 1 );
+        return ChunkCipher.submit( new Callable<String>() {
+            public String call() throws IOException, GeneralSecurityException {
+                byte[] plain = null;
+                if ( record != null ) {
+                    plain = decryptRecord( chunk, last, record );
+                }
+                if ( plain == null ) {
+                    throw new IOException( "Chunk " + chunk + " is damaged (failed authentication)." );
+                }
+                return chunkText( chunk, plain );
+            }
+        }, parallel );
+    }
+
+    public boolean hasMoreChunks() {
+        return ( index != null ) && ( nextChunk < index.getCount() );
+    }
+
+    public int getChunkCount() {
+        return ( index == null ) ? 0 : index.getCount();
+    }
+
+    // Chunks returned so far by nextChunk()
+    public int getChunksRead() {
+        return nextChunk;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage.toString();
+    }
+
+    // getCipherName() - Cipher of the file, after decrypt() or beginChunks()
+    public String getCipherName() {
+        return ( engine == null ) ? "" : engine.getName();
+    }
+
+    // getPasswordKey() - Hand over the password key derived by beginChunks(),
+    //   so the file can be saved without deriving it again.  The caller
+    //   destroys it; close() destroys it if it wasn't taken.
+    public PasswordKey getPasswordKey() {
+        PasswordKey key = passwordKey;
+        passwordKey = null;
+        return key;
+    }
+
+    public void close() {
+        for (Future<String> chunk : readAhead) {
+            chunk.cancel( false );
+        }
+        readAhead.clear();
+        if ( passwordKey != null ) {
+            passwordKey.destroy();
+            passwordKey = null;
+        }
+        try {
+            channel.close();
+        } catch (IOException ioe) {
+            System.err.println("IO Error occurred closing encrypted file.");
+        }
+    }
+
+    // badPasswordOrCorrupt() - Decryption failed; a damaged payload gives the
+    // same symptoms as a wrong password, so check the payload hash to tell them apart.
+    private int badPasswordOrCorrupt( InputStream payloadIn, MessageDigest payloadDigest )
+            throws IOException {
+        if ( !payloadIsIntact( payloadIn, payloadDigest ) ) {
+            return DECRYPT_CORRUPT;
+        }
+        return DECRYPT_BAD_PASSWORD;
+    }
+
+    // payloadIsIntact() - Consume the rest of the raw payload (anything not yet
+    // read by the decryption), and compare the payload hash with the header.
+    private boolean payloadIsIntact( InputStream payloadIn, MessageDigest payloadDigest )
+            throws IOException {
+        byte[] drain = new byte[BUFFER_SIZE];
+        while ( payloadIn.read( drain ) >= 0 ) {
+            // discard
+        }
+        if ( !header.getPayloadMD5().equals( PgmUtils.MD5Hash( payloadDigest ) ) ) {
+            errorMessage.setLength( 0 );
+            errorMessage.append("Hash code of encrypted block doesn't match value in header.");
+            return false;
+        }
+        return true;
+    }
+
+    // readRecord() - Read the encrypted data of the record at position,
+    //   null if the record length is invalid.
+    private byte[] readRecord( long position ) throws IOException {
+        ByteBuffer lengthBuf = ByteBuffer.allocate( 4 );
+        readFully( channel, lengthBuf, position );
+        if ( lengthBuf.hasRemaining() ) {
+            return null;
+        }
+        lengthBuf.flip();
+        int length = lengthBuf.getInt();
+        if ( length < ChunkCipher.TAG_LENGTH || position + 4 + length > channel.size() ) {
+            return null;
+        }
+        ByteBuffer data = ByteBuffer.allocate( length );
+        readFully( channel, data, position + 4 );
+        return data.array();
+    }
+
+    // decryptRecord() - Plaintext of the record, null if it fails authentication
+    private byte[] decryptRecord( int recordNumber, boolean last, byte[] record )
+            throws GeneralSecurityException {
+        try {
+            return engine.decrypt( recordNumber, last, record );
+        } catch (AEADBadTagException abte) {
+            return null;
+        }
+    }
+
+    // checkIndex() - Chunk records must start after the header and follow each
+    //   other up to the index record.
+    private void checkIndex() throws IOException {
+        long position = header.getLength();
+        for (int i=0; i<index.getCount(); i++) {
+            if ( index.getOffset( i ) != position ) {
+                throw new IOException( "Chunk index doesn't match chunk records." );
+            }
+            position += index.getRecordLength( i );
+        }
+        if ( position != header.getIndexOffset() ) {
+            throw new IOException( "Chunk index doesn't match chunk records." );
+        }
+    }
+
+    // chunkText() - Decode chunk plaintext, then clear it
+    private String chunkText( int chunk, byte[] plain ) throws IOException {
+        String text = new String( plain, "UTF-8" );
+        Arrays.fill( plain, (byte) 0 );
+        if ( text.length() != index.getCharCount( chunk ) ) {
+            throw new IOException( "Chunk " + chunk + " length doesn't match chunk index." );
+        }
+        return text;
+    }
+
+    private static void readFully( FileChannel channel, ByteBuffer buf, long position ) throws IOException {
+        while ( buf.hasRemaining() ) {
+            int n = channel.read( buf, position + buf.position() );
+            if ( n < 0 ) {
+                break;
+            }
+        }
+    }
+
+    // readMD5Line() - Read hex MD5 line, null if not found within MAX_MD5_LINE bytes
+    private static String readMD5Line( InputStream in ) throws IOException {
+        StringBuilder md5 = new StringBuilder( MAX_MD5_LINE );
+        for (int i=0; i<MAX_MD5_LINE; i++) {
+            int b;
+            try {
+                b = in.read();
+            } catch (IOException ioe) {
+                if ( ioe.getCause() instanceof GeneralSecurityException ) {
+                    return null;    // bad padding on a very short payload
+                }
+                throw ioe;
+            }
+            if ( b == '\n' ) {
+                return ( md5.length() > 0 ) ? md5.toString() : null;
+            }
+            if ( Character.digit( b, 16 ) < 0 ) {
+                return null;
+            }
+            md5.append( (char) b );
+        }
+        return null;
+    }
+
+    private static int readFully( InputStream in, byte[] buf ) throws IOException {
+        int total = 0;
+        int n;
+        while ( total < buf.length && (n = in.read( buf, total, buf.length - total )) > 0 ) {
+            total += n;
+        }
+        return total;
+    }
+
+//  ---------------------------------------------
+
+    private FileChannel channel;
+    private EncryptedFileHeader header;
+    private StringBuilder errorMessage;
+    // Chunked file
+    private PasswordKey passwordKey;    // Derived by beginChunks()
+    private CipherEngine engine;     // For the header version, set by decrypt() or beginChunks()
+    private ChunkIndex index;
+    private int nextChunk;          // Next chunk returned by nextChunk()
+    private String firstChunkText;  // Chunk 0, decrypted by beginChunks()
+    private int nextScheduled;      // Next chunk to read ahead
+    private ArrayDeque<Future<String>> readAhead;   // Chunks being decrypted, in order
+    private boolean parallel;       // Decrypt chunks on the ForkJoinPool
+}
@@ -0,0 +1,388 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * EncryptedFileWriter.java - Writes a Document to a DeadboltEdit encrypted *
+ *                          file as a stream.                               *
+ *                                                                          *
+ * A snapshot of the Document text (see PieceTableContent) is walked a      *
+ * Segment at a time, no String copy of the text is made, and the           *
+ * Document can be edited while the snapshot is written.  Characters go     *
+ * through a UTF-8 CharsetEncoder into chunks of at most CHUNK_SIZE bytes,  *
+ * split on character boundaries, and each chunk is encrypted with AES-GCM  *
+ * (ChunkCipher) and written to the FileChannel.  Chunks are encrypted in   *
+ * parallel on the ForkJoinPool (see setParallel()) and written in order,   *
+ * so only a few chunk-sized buffers per core are in memory at a time.      *
+ *                                                                          *
+ * Files are always written in the current (chunked) version, so a file     *
+ * in an older version is converted when it is saved.  The chunks hold the  *
+ * Document text as is ("\n" line ends).  The chunk index is written after  *
+ * the last chunk, then its offset is filled into the fixed-width header.   *
+ * Each save encrypts the chunks with a new random data key, wrapped with   *
+ * the password key in the header.  changePassword() re-wraps the data key  *
+ * of a saved file and rewrites only the header.                            *
+ *                                                                          *
+ * A save is written to a temp file in the same directory, forced to disk,  *
+ * and renamed over the file (atomically where the file system can), so a   *
+ * failed or interrupted save leaves the last saved file as it was.         *
+ *                                                                          *
+ * Usage:                                                                   *
+ *   EncryptedFileWriter writer = new EncryptedFileWriter( file );          *
+ *   writer.write( doc, password );                                         *
+ *   passwordKey = writer.getPasswordKey();    // for the next save         *
+ *   ...                                                                    *
+ *   writer.write( doc, passwordKey );         // no key derivation         *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.*;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.*;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import javax.crypto.SecretKey;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+public class EncryptedFileWriter {
+    //
+    //   --- Constants, package scope ---
+    protected static final int CHUNK_SIZE = 64 * 1024;
+    // Chars staged from the Document per encode call
+    protected static final int BUFFER_SIZE = 16 * 1024;
+    //
+    //   --- End Constants ---
+
+    public EncryptedFileWriter( File f ) {
+        this.file = f;
+        this.parallel = true;
+        this.passwordKey = null;
+        this.kdfIterations = ChunkCipher.DEFAULT_KDF_ITERATIONS;
+    }
+
+    // setParallel() - Encrypt chunks on all cores (default), or only on the
+    //   calling thread
+    public void setParallel( boolean parallel ) {
+        this.parallel = parallel;
+    }
+
+    // setKdfIterations() - PBKDF2 iterations for a key derived by write(),
+    //   normally calibrated with ChunkCipher.calibrateIterations()
+    public void setKdfIterations( int kdfIterations ) {
+        this.kdfIterations = kdfIterations;
+    }
+
+    // write() - Encrypt the text of doc with password and write the file.
+    //   The password key derived for it is kept, see getPasswordKey().
+    public void write( Document doc, char[] password )
+            throws IOException, GeneralSecurityException, BadLocationException {
+        PasswordKey key = PasswordKey.derive( password, ChunkCipher.newSalt(), kdfIterations );
+        boolean written = false;
+        try {
+            write( doc, key );
+            written = true;
+        } finally {
+            if ( !written ) {
+                key.destroy();
+            }
+        }
+    }
+
+    // write() - Encrypt the text of doc with a password key derived earlier
+    //   (same password and salt as the last save, or the load) and write the file.
+    public void write( Document doc, PasswordKey key )
+            throws IOException, GeneralSecurityException, BadLocationException {
+        write( snapshotOf( doc ), key );
+    }
+
+    // write() - Encrypt a snapshot of the text with a password key and write
+    //   the file.  The snapshot may be taken on the event thread and written
+    //   on another.
+    public void write( PieceTableContent.Snapshot text, PasswordKey key )
+            throws IOException, GeneralSecurityException, BadLocationException {
+        this.passwordKey = key;
+        byte[] nonce = ChunkCipher.newNonce();
+        SecretKey passwordKey = key.getKey();
+        SecretKey dataKey = ChunkCipher.newDataKey();
+        EncryptedFileHeader header = new EncryptedFileHeader( key.getKdfIterations(), key.getSalt(), nonce,
+            CHUNK_SIZE, ChunkCipher.keyCheckValue( passwordKey ), ChunkCipher.wrapKey( passwordKey, dataKey ) );
+        engine = new ChunkCipher( dataKey, nonce );
+        index = new ChunkIndex();
+        chunkNumber = 0;
+        encryptedChunks = new ArrayDeque<Future<byte[]>>();
+        encryptedChunkChars = new ArrayDeque<Integer>();
+
+        // The file is written beside the target and renamed over it when
+        // complete, so a failed save leaves the last saved file as it was
+        File tempFile = File.createTempFile( file.getName() + ".", ".tmp", file.getAbsoluteFile().getParentFile() );
+        boolean written = false;
+        channel = new RandomAccessFile( tempFile, "rw" ).getChannel();
+        try {
+            // Chunks follow the header, which is written last
+            filePosition = header.format().getBytes( "UTF-8" ).length;
+            encodeText( text );
+            while ( !encryptedChunks.isEmpty() ) {
+                writeEncryptedChunk();
+            }
+            header.setIndexOffset( filePosition );
+            byte[] indexBytes = index.toBytes();
+            writeRecord( engine.encrypt( ChunkCipher.INDEX_RECORD, true, indexBytes, 0, indexBytes.length ) );
+            writeFully( channel, ByteBuffer.wrap( header.format().getBytes( "UTF-8" ) ), 0 );
+            channel.force( true );
+            channel.close();
+            replaceFile( tempFile, file );
+            written = true;
+        } finally {
+            channel.close();
+            for (Future<byte[]> chunk : encryptedChunks) {
+                chunk.cancel( false );      // After an error
+            }
+            encryptedChunks.clear();
+            if ( !written && !tempFile.delete() ) {
+                System.err.println("Warning: Cannot delete temp file " + tempFile.getPath());
+            }
+        }
+    }
+
+    // replaceFile() - Rename source over target, atomically where the file
+    //   system can
+    private static void replaceFile( File source, File target ) throws IOException {
+        try {
+            Files.move( source.toPath(), target.toPath(),
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+        } catch (AtomicMoveNotSupportedException amnse) {
+            Files.move( source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING );
+        }
+    }
+
+    // changePassword() - Re-wrap the data key of a saved file with newPassword
+    //   and rewrite the header in place; the chunks are not read or rewritten.
+    //   The new password key is derived with kdfIterations.  Returns the new
+    //   password key, or null, with the file unchanged, if the file isn't a
+    //   version 4 file or oldPassword doesn't open it.  The reason is appended
+    //   to errorMsg.
+    public static PasswordKey changePassword( File f, char[] oldPassword, char[] newPassword,
+            int kdfIterations, StringBuilder errorMsg ) throws IOException, GeneralSecurityException {
+        FileChannel channel = new RandomAccessFile( f, "rw" ).getChannel();
+        try {
+            EncryptedFileHeader header = EncryptedFileHeader.read( channel, errorMsg );
+            if ( header == null ) {
+                return null;
+            }
+            byte[] wrappedKey = header.getWrappedKey();
+            if ( wrappedKey == null ) {
+                errorMsg.append("File version " + header.getVersion() + " has no data key to re-wrap.");
+                return null;
+            }
+            SecretKey oldKey = ChunkCipher.deriveKey( oldPassword, header.getSalt(), header.getKdfIterations() );
+            if ( !ChunkCipher.keyMatches( oldKey, header.getKeyCheck() ) ) {
+                errorMsg.append("Key check value doesn't match (incorrect password).");
+                return null;
+            }
+            SecretKey dataKey;
+            try {
+                dataKey = ChunkCipher.unwrapKey( oldKey, wrappedKey );
+            } catch (InvalidKeyException ike) {
+                errorMsg.append("Data key failed integrity check.");
+                return null;
+            }
+            PasswordKey newPasswordKey = PasswordKey.derive( newPassword, ChunkCipher.newSalt(), kdfIterations );
+            SecretKey newKey = newPasswordKey.getKey();
+            header.setPasswordKey( newPasswordKey.getKdfIterations(), newPasswordKey.getSalt(),
+                ChunkCipher.keyCheckValue( newKey ), ChunkCipher.wrapKey( newKey, dataKey ) );
+            byte[] headerBytes = header.format().getBytes( "UTF-8" );
+            if ( headerBytes.length != header.getLength() ) {
+                newPasswordKey.destroy();
+                errorMsg.append("Header length changed, can't rewrite in place.");
+                return null;
+            }
+            writeFully( channel, ByteBuffer.wrap( headerBytes ), 0 );
+            channel.force( true );
+            return newPasswordKey;
+        } finally {
+            channel.close();
+        }
+    }
+
+    // getPasswordKey() - The password key used by the last write(), to be
+    //   passed to the next one
+    public PasswordKey getPasswordKey() {
+        return passwordKey;
+    }
+
+    // snapshotOf() - Snapshot of the text of doc.  The text of a Document
+    //   other than an EditorDocument is copied into one.
+    private static PieceTableContent.Snapshot snapshotOf( Document doc ) throws BadLocationException {
+        if ( doc instanceof EditorDocument ) {
+            return ((EditorDocument) doc).snapshot();
+        }
+        PieceTableContent copy = new PieceTableContent();
+        copy.insertString( 0, doc.getText( 0, doc.getLength() ) );
+        return copy.snapshot();
+    }
+
+    // encodeText() - Walk the snapshot Segments and encode the text into chunks.
+    private void encodeText( PieceTableContent.Snapshot text ) throws IOException, GeneralSecurityException, BadLocationException {
+        encoder = Charset.forName( "UTF-8" ).newEncoder()
+            .onMalformedInput( CodingErrorAction.REPLACE )
+            .onUnmappableCharacter( CodingErrorAction.REPLACE );
+        char[] chars = new char[BUFFER_SIZE];
+        CharBuffer charBuf = CharBuffer.wrap( chars );
+        chunkBuf = ByteBuffer.allocate( CHUNK_SIZE );
+        chunkChars = 0;
+        pendingChunk = null;
+        Segment segment = new Segment();
+        segment.setPartialReturn( true );
+        try {
+            int offset = 0;
+            int docLength = text.length() - 1;     // Not the implied newline
+            while ( offset < docLength ) {
+                text.getChars( offset, docLength - offset, segment );
+                int i = segment.offset;
+                int end = segment.offset + segment.count;
+                while ( i < end ) {
+                    if ( !charBuf.hasRemaining() ) {
+                        encodeChars( charBuf, false );
+                    }
+                    int n = Math.min( charBuf.remaining(), end - i );
+                    charBuf.put( segment.array, i, n );
+                    i += n;
+                }
+                offset += segment.count;
+            }
+            encodeChars( charBuf, true );
+            encoder.flush( chunkBuf );
+            // The last chunk is flagged, it may be empty if the text is empty
+            if ( (chunkBuf.position() > 0) || (pendingChunk == null) ) {
+                writePendingChunk( false );
+                pendingChunk = Arrays.copyOf( chunkBuf.array(), chunkBuf.position() );
+                pendingChars = chunkChars;
+            }
+            writePendingChunk( true );
+        } finally {
+            Arrays.fill( chars, (char) 0 );     // Don't leave clear text behind
+            Arrays.fill( chunkBuf.array(), (byte) 0 );
+        }
+    }
+
+    // encodeChars() - Encode the chars in charBuf into the current chunk,
+    //   starting a new chunk each time it fills.  An incomplete surrogate pair
+    //   is kept in charBuf for the next call.
+    private void encodeChars( CharBuffer charBuf, boolean endOfInput )
+            throws IOException, GeneralSecurityException {
+        charBuf.flip();
+        while ( true ) {
+            int start = charBuf.position();
+            CoderResult result = encoder.encode( charBuf, chunkBuf, endOfInput );
+            chunkChars += charBuf.position() - start;
+            if ( !result.isOverflow() ) {
+                break;
+            }
+            // Chunk is full.  Write the previous one, this one may be the last.
+            writePendingChunk( false );
+            pendingChunk = Arrays.copyOf( chunkBuf.array(), chunkBuf.position() );
+            pendingChars = chunkChars;
+            Arrays.fill( chunkBuf.array(), (byte) 0 );
+            chunkBuf.clear();
+            chunkChars = 0;
+        }
+        charBuf.compact();
+    }
+
+    // writePendingChunk() - Start encryption of the pending chunk.  When
+    //   enough chunks are in flight, write the oldest.
+    private void writePendingChunk( boolean last ) throws IOException, GeneralSecurityException {
+        if ( pendingChunk == null ) {
+            return;
+        }
+        final byte[] plain = pendingChunk;
+        final int number = chunkNumber;
+        final boolean isLast = last;
+        encryptedChunks.add( ChunkCipher.submit( new Callable<byte[]>() {
+            public byte[] call() throws GeneralSecurityException {
+                try {
+                    return engine.encrypt( number, isLast, plain, 0, plain.length );
+                } finally {
+                    Arrays.fill( plain, (byte) 0 );
+                }
+            }
+        }, parallel ) );
+        encryptedChunkChars.add( pendingChars );
+        chunkNumber++;
+        pendingChunk = null;
+        int window = parallel ? ChunkCipher.parallelWindow() : 1;
+        while ( encryptedChunks.size() >= window ) {
+            writeEncryptedChunk();
+        }
+    }
+
+    // writeEncryptedChunk() - Wait for the oldest chunk in flight and write it
+    private void writeEncryptedChunk() throws IOException, GeneralSecurityException {
+        byte[] encrypted = ChunkCipher.getResult( encryptedChunks.peek() );
+        encryptedChunks.remove();
+        long recordOffset = filePosition;
+        int recordLength = writeRecord( encrypted );
+        index.add( recordOffset, recordLength, encryptedChunkChars.remove() );
+    }
+
+    // writeRecord() - Write encrypted data as a record (length + data) at
+    //   filePosition.  Returns the record length.
+    private int writeRecord( byte[] encrypted ) throws IOException {
+        ByteBuffer record = ByteBuffer.allocate( 4 + encrypted.length );
+        record.putInt( encrypted.length ).put( encrypted ).flip();
+        writeFully( channel, record, filePosition );
+        filePosition += record.limit();
+        return record.limit();
+    }
+
+    private static void writeFully( FileChannel channel, ByteBuffer buf, long position ) throws IOException {
+        while ( buf.hasRemaining() ) {
+            position += channel.write( buf, position );
+        }
+    }
+
+//  ---------------------------------------------
+
+    private File file;
+    private boolean parallel;       // Encrypt chunks on the ForkJoinPool
+    private PasswordKey passwordKey;    // Key of the last write()
+    private int kdfIterations;      // PBKDF2 iterations for a new password key
+    // Used during write()
+    private FileChannel channel;
+    private long filePosition;      // Where the next record goes
+    private CipherEngine engine;
+    private ChunkIndex index;
+    private CharsetEncoder encoder;
+    private ByteBuffer chunkBuf;    // Chunk being filled
+    private int chunkChars;         // Document chars in chunkBuf
+    private byte[] pendingChunk;    // Full chunk waiting to be written, it may be the last
+    private int pendingChars;
+    private int chunkNumber;        // Number of next chunk started
+    private ArrayDeque<Future<byte[]>> encryptedChunks;    // Chunks in flight, in order
+    private ArrayDeque<Integer> encryptedChunkChars;       // Document chars in each
+}
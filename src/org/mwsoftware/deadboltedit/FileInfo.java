@@ -23,8 +23,6 @@
 package org.mwsoftware.deadboltedit;
 
 import java.util.Arrays;    //Arrays.fill()
-import java.io.*;                   // Encryption
-import org.apache.commons.ssl.*;    // Encryption
 import java.security.*;     // For MD5 Hash
 import java.math.*;         // For MD5 Hash
 import java.lang.*;    // Double, Math(static)
@@ -35,10 +33,12 @@ public class FileInfo {
     private String ext;     // Includes ".", example ".ctxt"
     private byte[] encryptedPassword;   // Password stored encrypted
     private String MD5Hash;             // MD5 Hash of clear text password
+    private PasswordKey passwordKey;    // Key derived from password, for saves
     
-    // Used to internally encrypt file password
-    private char[] internalPW =
-        ("Encoding Error" +  new Double( Math.random() ).toString() ).toCharArray();
+    // Used to internally encrypt file password (random key, never stored).
+    // Each password is a new record, so it gets a new IV.
+    private ChunkCipher internalCipher = newInternalCipher();
+    private int passwordRecord = 0;
     
     //private boolean encrypted;
     public FileInfo() {
@@ -47,6 +47,7 @@ public class FileInfo {
         this.ext = null;
         this.encryptedPassword = null;
         this.MD5Hash = null;
+        this.passwordKey = null;
         //this.encrypted = false;   
     }
     /* 
@@ -94,17 +95,15 @@ public class FileInfo {
         }
         else {
             try {
-                decryptedPassword = OpenSSL.decrypt("des3", internalPW, encryptedPassword);
-            } catch (IOException ioe) {
-                System.err.println("IO Error occurred during password decryption.");
-                ioe.printStackTrace();
+                decryptedPassword = internalCipher.decrypt(passwordRecord, true, encryptedPassword);
             } catch (java.security.GeneralSecurityException gse) {
                 System.err.println("GeneralSecurityException Error occurred during password decryption.");
                 gse.printStackTrace();
             }
-            char[] cleartextPassword = new char[decryptedPassword.length];
-            for (int i=0; i<decryptedPassword.length; i++) {
-                cleartextPassword[i] = (char) decryptedPassword[i];
+            // 2 bytes per char, see setPassword()
+            char[] cleartextPassword = new char[decryptedPassword.length / 2];
+            for (int i=0; i<cleartextPassword.length; i++) {
+                cleartextPassword[i] = (char) (((decryptedPassword[2*i] & 0xFF) << 8) | (decryptedPassword[2*i+1] & 0xFF));
             }
             Arrays.fill(decryptedPassword, (byte) ' ');
             //return this.password;
@@ -113,30 +112,41 @@ public class FileInfo {
     }
     public void setPassword (char[] cleartextPassword)
     {
+        setPasswordKey( null );     // Derived from the old password
         // encrypt and store password
         if ( cleartextPassword == null ) {
             encryptedPassword = null;
         }
         else {
-            byte[] tmpPassword = new byte[cleartextPassword.length];
+            // 2 bytes per char, so non-ASCII password chars are kept
+            byte[] tmpPassword = new byte[2 * cleartextPassword.length];
             for (int i=0; i<cleartextPassword.length; i++) {
-                tmpPassword[i] = (byte) cleartextPassword[i];
+                tmpPassword[2*i] = (byte) (cleartextPassword[i] >> 8);
+                tmpPassword[2*i+1] = (byte) cleartextPassword[i];
             }
             try {
-                encryptedPassword = OpenSSL.encrypt("des3", internalPW, tmpPassword);
-            } catch (IOException ioe) {
-                System.err.println("IO Error occurred during password encryption.");
-                ioe.printStackTrace();
+                passwordRecord++;
+                encryptedPassword = internalCipher.encrypt(passwordRecord, true, tmpPassword, 0, tmpPassword.length);
             } catch (java.security.GeneralSecurityException gse) {
                 System.err.println("GeneralSecurityException Error occurred during password encryption.");
                 gse.printStackTrace();
             }
             // Compute MD5 Hash for this password
-            MD5Hash = PgmUtils.MD5Hash( tmpPassword );
+            MD5Hash = PgmUtils.MD5Hash( cleartextPassword );
             Arrays.fill(tmpPassword, (byte) ' ');
         }
         return;
     }
+    private static ChunkCipher newInternalCipher()
+    {
+        try {
+            return new ChunkCipher( ChunkCipher.newDataKey(), ChunkCipher.newNonce() );
+        } catch (java.security.GeneralSecurityException gse) {
+            System.err.println("GeneralSecurityException Error occurred creating password cipher.");
+            gse.printStackTrace();
+            return null;
+        }
+    }
     public boolean passwordIsSet() 
     {
         if (encryptedPassword == null )
@@ -148,6 +158,30 @@ public class FileInfo {
     {
         return MD5Hash;
     }
+    // Password key cached from the last load or save, null if none.  Saves
+    // use it instead of getPassword() and another key derivation.
+    public PasswordKey getPasswordKey()
+    {
+        return passwordKey;
+    }
+    // Set after setPassword(), which clears it.  The old key is destroyed.
+    public void setPasswordKey (PasswordKey key)
+    {
+        if ( passwordKey != null && passwordKey != key ) {
+            passwordKey.destroy();
+        }
+        passwordKey = key;
+    }
+    // destroy() - Zero the cached password key and the encrypted password.
+    // Called when the editor window closes.
+    public void destroy()
+    {
+        setPasswordKey( null );
+        if ( encryptedPassword != null ) {
+            Arrays.fill( encryptedPassword, (byte) 0 );
+            encryptedPassword = null;
+        }
+    }
     //public boolean getEncrypted () 
     //{
     //    return this.encrypted;
@@ -28,6 +28,8 @@ package org.mwsoftware.deadboltedit;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 
 public class FindDialog extends JDialog {
@@ -59,6 +61,8 @@ public class FindDialog extends JDialog {
         } else {
             checkBoxMatchCase.setSelected( false );
         }
+        checkBoxHighlightAll.setSelected( textSearcher.isHighlightAllSet() );
+        textSearcher.setHighlightAll( checkBoxHighlightAll.isSelected(), matchListener );
     }
 
     private void setStatus( String msg ) {
@@ -89,7 +93,7 @@ public class FindDialog extends JDialog {
             result = textSearcher.findIgnoreCase( searchStr );
         }
         if ( result >= 0 ) {
-            setStatus("Found match #" + textSearcher.getMatchCount());
+            setStatus( textSearcher.getMatchStatus() );
             if ( textSearcher.canContinueSearch() ) {
                 buttonFindNext.setEnabled( true );
                 if ( getRootPane().getDefaultButton() != null ) {
@@ -119,7 +123,7 @@ public class FindDialog extends JDialog {
             result = textSearcher.findNextIgnoreCase();
         }
         if ( result >= 0 ) {
-            setStatus("Found match #" + textSearcher.getMatchCount() );
+            setStatus( textSearcher.getMatchStatus() );
             if ( !textSearcher.canContinueSearch() ) {
                 if ( getRootPane().getDefaultButton() != null ) {
                     getRootPane().setDefaultButton( buttonFind );
@@ -138,6 +142,14 @@ public class FindDialog extends JDialog {
         }
     }
 
+    private void checkBoxHighlightAllActionPerformed() {
+        //
+        textSearcher.setHighlightAll( checkBoxHighlightAll.isSelected(), matchListener );
+        if ( !checkBoxHighlightAll.isSelected() ) {
+            clearStatus();
+        }
+    }
+
     private void buttonCloseActionPerformed() {
         //
         textSearcher.resetDialogLock();
@@ -190,6 +202,7 @@ public class FindDialog extends JDialog {
         textFieldFind = new JTextField();
         panel2 = new JPanel();
         checkBoxMatchCase = new JCheckBox();
+        checkBoxHighlightAll = new JCheckBox();
         panel1 = new JPanel();
         buttonFind = new JButton();
         buttonFindNext = new JButton();
@@ -242,9 +255,9 @@ public class FindDialog extends JDialog {
         //======== panel2 ========
         {
             panel2.setLayout(new GridBagLayout());
-            ((GridBagLayout)panel2.getLayout()).columnWidths = new int[] {72, 0, 0};
+            ((GridBagLayout)panel2.getLayout()).columnWidths = new int[] {72, 0, 0, 0};
             ((GridBagLayout)panel2.getLayout()).rowHeights = new int[] {0, 0};
-            ((GridBagLayout)panel2.getLayout()).columnWeights = new double[] {0.0, 0.0, 1.0E-4};
+            ((GridBagLayout)panel2.getLayout()).columnWeights = new double[] {0.0, 0.0, 0.0, 1.0E-4};
             ((GridBagLayout)panel2.getLayout()).rowWeights = new double[] {0.0, 1.0E-4};
 
             //---- checkBoxMatchCase ----
@@ -253,6 +266,18 @@ public class FindDialog extends JDialog {
             panel2.add(checkBoxMatchCase, new GridBagConstraints(1, 0, 1, 1, 0.0, 0.0,
                 GridBagConstraints.WEST, GridBagConstraints.VERTICAL,
                 new Insets(0, 0, 0, 0), 0, 0));
+
+            //---- checkBoxHighlightAll ----
+            checkBoxHighlightAll.setText("Highlight All");
+            checkBoxHighlightAll.setToolTipText("Highlight and count all matches");
+            checkBoxHighlightAll.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    checkBoxHighlightAllActionPerformed();
+                }
+            });
+            panel2.add(checkBoxHighlightAll, new GridBagConstraints(2, 0, 1, 1, 0.0, 0.0,
+                GridBagConstraints.WEST, GridBagConstraints.VERTICAL,
+                new Insets(0, 10, 0, 0), 0, 0));
         }
         contentPane.add(panel2, new GridBagConstraints(1, 2, 2, 1, 0.0, 0.0,
             GridBagConstraints.CENTER, GridBagConstraints.BOTH,
@@ -340,6 +365,7 @@ public class FindDialog extends JDialog {
     private JTextField textFieldFind;
     private JPanel panel2;
     private JCheckBox checkBoxMatchCase;
+    private JCheckBox checkBoxHighlightAll;
     private JPanel panel1;
     private JButton buttonFind;
     private JButton buttonFindNext;
@@ -347,4 +373,10 @@ public class FindDialog extends JDialog {
     private JLabel statusLine;
     // JFormDesigner - End of variables declaration  //GEN-END:variables
     private TextSearcher textSearcher;
+    // Highlight All found more matches, or the text changed
+    private final ChangeListener matchListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            setStatus( textSearcher.getMatchStatus() );
+        }
+    };
 }
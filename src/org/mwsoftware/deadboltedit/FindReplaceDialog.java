@@ -29,6 +29,8 @@ package org.mwsoftware.deadboltedit;
 import java.awt.*;
 import java.awt.event.*;
 import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 public class FindReplaceDialog extends JDialog {
     public FindReplaceDialog(Frame owner, TextSearcher tSearcher) {
@@ -62,6 +64,8 @@ public class FindReplaceDialog extends JDialog {
         } else {
             checkBoxMatchCase.setSelected( false );
         }
+        checkBoxHighlightAll.setSelected( textSearcher.isHighlightAllSet() );
+        textSearcher.setHighlightAll( checkBoxHighlightAll.isSelected(), matchListener );
     }
 
     private void setStatus( String msg ) {
@@ -93,7 +97,7 @@ public class FindReplaceDialog extends JDialog {
         }
         if ( result >= 0 ) {
             buttonReplace.setEnabled(true);
-            setStatus("Found match #" + textSearcher.getMatchCount());
+            setStatus( textSearcher.getMatchStatus() );
             if ( textSearcher.canContinueSearch() ) {
                 buttonFindNext.setEnabled( true );
                 if ( getRootPane().getDefaultButton() != null ) {
@@ -124,7 +128,7 @@ public class FindReplaceDialog extends JDialog {
             result = textSearcher.findNextIgnoreCase();
         }
         if ( result >= 0 ) {
-            setStatus("Found match #" + textSearcher.getMatchCount() );
+            setStatus( textSearcher.getMatchStatus() );
             buttonReplace.setEnabled(true);
             if ( !textSearcher.canContinueSearch() ) {
                 if ( getRootPane().getDefaultButton() != null ) {
@@ -183,32 +187,23 @@ public class FindReplaceDialog extends JDialog {
             return;
         }
 
-        int searchResult;
-        if ( caseMatch ) {
-            searchResult = textSearcher.findMatchCase( searchStr );
-        } else {
-            searchResult = textSearcher.findIgnoreCase( searchStr );
-        }
-        if ( searchResult < 0 ) {
+        // One pass, one edit (see TextSearcher.replaceAll())
+        replacementCount = textSearcher.replaceAll( searchStr, replacementStr, caseMatch );
+        if ( replacementCount <= 0 ) {
             setStatus("Search text not found, no replacement performed.");
             return;
         }
-        textSearcher.replaceSelectedString( replacementStr );
-        replacementCount++;
-        // find and replace remaining occurances
-        while ( textSearcher.canContinueSearch() ) {
-            if ( caseMatch ) {
-                searchResult = textSearcher.findNextMatchCase( );
-            } else {
-                searchResult = textSearcher.findNextIgnoreCase( );
-            }
-            if (searchResult < 0) break;
-            textSearcher.replaceSelectedString( replacementStr );
-            replacementCount++;
-        }
         setStatus( "Replace All: " + replacementCount + " replacements.");
     }
 
+    private void checkBoxHighlightAllActionPerformed() {
+        //
+        textSearcher.setHighlightAll( checkBoxHighlightAll.isSelected(), matchListener );
+        if ( !checkBoxHighlightAll.isSelected() ) {
+            clearStatus();
+        }
+    }
+
     private void buttonCloseActionPerformed() {
         //
         textSearcher.resetDialogLock();
@@ -287,6 +282,7 @@ public class FindReplaceDialog extends JDialog {
         textFieldReplace = new JTextField();
         panel2 = new JPanel();
         checkBoxMatchCase = new JCheckBox();
+        checkBoxHighlightAll = new JCheckBox();
         panel1 = new JPanel();
         buttonFind = new JButton();
         buttonFindNext = new JButton();
@@ -364,9 +360,9 @@ public class FindReplaceDialog extends JDialog {
         //======== panel2 ========
         {
             panel2.setLayout(new GridBagLayout());
-            ((GridBagLayout)panel2.getLayout()).columnWidths = new int[] {72, 146, 0};
+            ((GridBagLayout)panel2.getLayout()).columnWidths = new int[] {72, 146, 0, 0};
             ((GridBagLayout)panel2.getLayout()).rowHeights = new int[] {0, 0};
-            ((GridBagLayout)panel2.getLayout()).columnWeights = new double[] {0.0, 0.0, 1.0E-4};
+            ((GridBagLayout)panel2.getLayout()).columnWeights = new double[] {0.0, 0.0, 0.0, 1.0E-4};
             ((GridBagLayout)panel2.getLayout()).rowWeights = new double[] {0.0, 1.0E-4};
 
             //---- checkBoxMatchCase ----
@@ -375,6 +371,18 @@ public class FindReplaceDialog extends JDialog {
             panel2.add(checkBoxMatchCase, new GridBagConstraints(1, 0, 1, 1, 0.0, 0.0,
                 GridBagConstraints.WEST, GridBagConstraints.VERTICAL,
                 new Insets(0, 0, 0, 0), 0, 0));
+
+            //---- checkBoxHighlightAll ----
+            checkBoxHighlightAll.setText("Highlight All");
+            checkBoxHighlightAll.setToolTipText("Highlight and count all matches");
+            checkBoxHighlightAll.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    checkBoxHighlightAllActionPerformed();
+                }
+            });
+            panel2.add(checkBoxHighlightAll, new GridBagConstraints(2, 0, 1, 1, 0.0, 0.0,
+                GridBagConstraints.WEST, GridBagConstraints.VERTICAL,
+                new Insets(0, 10, 0, 0), 0, 0));
         }
         contentPane.add(panel2, new GridBagConstraints(1, 3, 2, 1, 0.0, 0.0,
             GridBagConstraints.CENTER, GridBagConstraints.BOTH,
@@ -501,6 +509,7 @@ public class FindReplaceDialog extends JDialog {
     private JTextField textFieldReplace;
     private JPanel panel2;
     private JCheckBox checkBoxMatchCase;
+    private JCheckBox checkBoxHighlightAll;
     private JPanel panel1;
     private JButton buttonFind;
     private JButton buttonFindNext;
@@ -510,4 +519,10 @@ public class FindReplaceDialog extends JDialog {
     private JLabel statusLine;
     // JFormDesigner - End of variables declaration  //GEN-END:variables
     private TextSearcher textSearcher;
+    // Highlight All found more matches, or the text changed
+    private final ChangeListener matchListener = new ChangeListener() {
+        public void stateChanged(ChangeEvent e) {
+            setStatus( textSearcher.getMatchStatus() );
+        }
+    };
 }
@@ -0,0 +1,188 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * LineIndex.java - Start offsets of the lines in a Document.               *
+ *                                                                          *
+ * The index is kept up to date from DocumentEvents: an insert scans only   *
+ * the inserted text for newlines, a remove drops the line starts inside    *
+ * the removed range.  Finding the line of an offset is a binary search.    *
+ *                                                                          *
+ * The line starts are a gap buffer of ints.  Starts before the gap are     *
+ * document offsets, starts after the gap are stored relative to the end    *
+ * of the document, so an edit doesn't have to shift every following line.  *
+ * The gap moves to the edited line, which is usually close to the last     *
+ * one.                                                                     *
+ *                                                                          *
+ * Usage:                                                                   *
+ *     LineIndex lines = new LineIndex( doc );                              *
+ *     doc.addDocumentListener( lines );                                    *
+ *     int line = lines.getLineOfOffset( offset );     // 0 based           *
+ *     int column = offset - lines.getLineStart( line );                    *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+class LineIndex implements DocumentListener {
+
+    //   --- Constants, package scope ---
+    protected static final int INITIAL_CAPACITY = 64;   // Line starts
+    //   --- End Constants ---
+
+    // Build the index from the current text of the Document.  This is the only
+    // full scan, after it only the edited text is looked at.
+    public LineIndex( Document doc ) {
+        this.doc = doc;
+        this.lineStarts = new int[INITIAL_CAPACITY];
+        this.gapStart = 1;                      // Line 0 starts at 0
+        this.gapEnd = INITIAL_CAPACITY;
+        this.docLength = 0;
+        insertLines( 0, doc.getLength() );
+    }
+
+    // getLineCount() - Number of lines, at least 1
+    public int getLineCount() {
+        return lineStarts.length - (gapEnd - gapStart);
+    }
+
+    // getLineStart() - Offset of the first character of a line (0 based)
+    public int getLineStart( int line ) {
+        if ( line < gapStart ) {
+            return lineStarts[line];
+        }
+        return lineStarts[line + gapEnd - gapStart] + docLength;
+    }
+
+    // getLineOfOffset() - Line (0 based) containing a document offset
+    public int getLineOfOffset( int offset ) {
+        // Last line whose start is <= offset
+        int low = 0;
+        int high = getLineCount() - 1;
+        while ( low < high ) {
+            int mid = (low + high + 1) >>> 1;
+            if ( getLineStart( mid ) <= offset ) {
+                low = mid;
+            }
+            else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // ---- DocumentListener Methods --------------------------------------
+    public void insertUpdate( DocumentEvent e ) {
+        insertLines( e.getOffset(), e.getLength() );
+    }
+    public void removeUpdate( DocumentEvent e ) {
+        removeLines( e.getOffset(), e.getLength() );
+    }
+    public void changedUpdate( DocumentEvent e ) {
+        // Attributes only, the text is the same
+    }
+    // ---- End: DocumentListener Methods ---------------------------------
+
+    // insertLines() - Text was inserted at offset.  Line starts after offset
+    // move with the text, and each newline in it starts a new line.
+    private void insertLines( int offset, int length ) {
+        if ( length == 0 ) {
+            return;
+        }
+        int line = getLineOfOffset( offset );
+        moveGap( line + 1 );
+        docLength += length;    // Shifts the starts after the gap
+        Segment segment = new Segment();
+        segment.setPartialReturn( true );
+        int pos = offset;
+        int end = offset + length;
+        try {
+            while ( pos < end ) {
+                doc.getText( pos, end - pos, segment );
+                for (int i = segment.offset; i < segment.offset + segment.count; i++) {
+                    if ( segment.array[i] == '\n' ) {
+                        if ( gapStart == gapEnd ) {
+                            growGap();
+                        }
+                        lineStarts[gapStart++] = pos + (i - segment.offset) + 1;
+                    }
+                }
+                pos += segment.count;
+            }
+        } catch (BadLocationException ble) {
+            ble.printStackTrace();      // Not expected, the range is the inserted text
+        }
+    }
+
+    // removeLines() - Text was removed at offset.  Lines that started inside
+    // the removed text are gone, the following ones move back.
+    private void removeLines( int offset, int length ) {
+        if ( length == 0 ) {
+            return;
+        }
+        int first = getLineOfOffset( offset ) + 1;
+        int last = getLineOfOffset( offset + length );
+        moveGap( first );
+        gapEnd += last - first + 1;     // Drop lines first .. last (none if last < first)
+        docLength -= length;
+    }
+
+    // moveGap() - Move the gap in front of line, converting the line starts it
+    // passes over between document offsets and end-relative offsets.
+    private void moveGap( int line ) {
+        if ( line < gapStart ) {
+            int count = gapStart - line;
+            int newGapEnd = gapEnd - count;
+            for (int i = count - 1; i >= 0; i--) {
+                lineStarts[newGapEnd + i] = lineStarts[line + i] - docLength;
+            }
+            gapStart = line;
+            gapEnd = newGapEnd;
+        }
+        else if ( line > gapStart ) {
+            int count = line - gapStart;
+            for (int i = 0; i < count; i++) {
+                lineStarts[gapStart + i] = lineStarts[gapEnd + i] + docLength;
+            }
+            gapStart = line;
+            gapEnd += count;
+        }
+    }
+
+    // growGap() - Double the capacity, the gap gets the new space
+    private void growGap() {
+        int tail = lineStarts.length - gapEnd;
+        int[] newStarts = new int[2 * lineStarts.length];
+        System.arraycopy( lineStarts, 0, newStarts, 0, gapStart );
+        System.arraycopy( lineStarts, gapEnd, newStarts, newStarts.length - tail, tail );
+        gapEnd = newStarts.length - tail;
+        lineStarts = newStarts;
+    }
+
+    //  ---------------------------------------------
+    private final Document doc;
+    private int[] lineStarts;   // Gap buffer: [0, gapStart) offsets, [gapEnd, length) offset - docLength
+    private int gapStart;
+    private int gapEnd;
+    private int docLength;      // Document length the end-relative starts are based on
+}
@@ -0,0 +1,562 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * MatchHighlighter.java - Highlight All for the Find dialogs.              *
+ *                                                                          *
+ * Keeps the start offsets of all the matches of a search string in the     *
+ * Document, sorted, and highlights the ones in the visible part of the     *
+ * editor.  Only those are given to the Highlighter, which paints every     *
+ * highlight it has, so scrolling updates them.                             *
+ *                                                                          *
+ * The text is scanned visible part first: the visible lines at once, then  *
+ * on to the end of the text and around from the start, SCAN_CHUNK chars    *
+ * at a time on a background thread.  The background scan reads a           *
+ * Snapshot of the text (see PieceTableContent); a chunk scanned while the  *
+ * text changed is scanned again.  The parts not yet scanned are kept as    *
+ * Positions, so edits move them.                                           *
+ *                                                                          *
+ * An edit only rescans the damaged region around it: matches that overlap  *
+ * the edit are dropped, the ones after it are moved, and the text from     *
+ * pattern length - 1 before the edit is searched again.  Matches don't     *
+ * overlap (the ones Find Next steps through, each search starts at the end *
+ * of the last match), so a change can move the matches after it: the       *
+ * search goes on past the edit until it comes to a match it already had.   *
+ * Inserts over DAMAGE_SCAN_MAX chars (a paste, a file load) are left to    *
+ * the background scan, as is a search that goes on that far without        *
+ * coming back to the old matches ("aaaa...").                              *
+ *                                                                          *
+ * Usage:                                                                   *
+ *     MatchHighlighter matches = new MatchHighlighter( editPane );         *
+ *     matches.start( "text", true, listener );     // Match case           *
+ *     int n = matches.getMatchNumber( offset );   // 1 based, or 0         *
+ *     matches.stop();                                                      *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import javax.swing.JViewport;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
+import javax.swing.text.Highlighter;
+import javax.swing.text.JTextComponent;
+import javax.swing.text.Position;
+
+class MatchHighlighter implements DocumentListener, ChangeListener, PropertyChangeListener {
+
+    //   --- Constants, package scope ---
+    protected static final int SCAN_CHUNK = 1024 * 1024;        // Chars per background scan
+    protected static final int DAMAGE_SCAN_MAX = 64 * 1024;     // Larger inserts scanned in background
+    protected static final int MAX_HIGHLIGHTS = 2000;           // Given to the Highlighter at once
+    protected static final int HIGHLIGHT_MARGIN = 4 * 1024;     // Chars highlighted outside the view
+    protected static final Color HIGHLIGHT_COLOR = new Color( 255, 235, 120 );
+    //   --- End Constants ---
+
+    public MatchHighlighter( JTextComponent editPane ) {
+        this.editPane = editPane;
+    }
+
+    // start() - Find and highlight all matches of s, replacing any earlier
+    //   search string.  listener (may be null) is told when the matches change.
+    public void start( String s, boolean matchCase, ChangeListener listener ) {
+        stop();
+        this.listener = listener;
+        pattern = new TextSearcher.Pattern( s, matchCase );
+        workerPattern = new TextSearcher.Pattern( s, matchCase );
+        doc = editPane.getDocument();
+        doc.addDocumentListener( this );
+        editPane.addPropertyChangeListener( "document", this );
+        viewport = (JViewport) SwingUtilities.getAncestorOfClass( JViewport.class, editPane );
+        if ( viewport != null ) {
+            viewport.addChangeListener( this );
+        }
+        // Visible part first, then on to the end, then from the start
+        int[] visible = visibleRange( 0 );
+        try {
+            addPending( visible[1], doc.getLength() );
+            addPending( 0, visible[0] );
+        } catch (BadLocationException ble) {
+            ble.printStackTrace();      // Not expected, offsets are in the Document
+        }
+        running = true;
+        rescan( visible[0], visible[1], 0 );
+        scanNextChunk();
+        updateHighlights();
+        matchesChanged();
+    }
+
+    // stop() - Remove the highlights and stop following the Document
+    public void stop() {
+        if ( !running ) {
+            return;
+        }
+        running = false;
+        scanId++;           // Results of a scan in progress are dropped
+        doc.removeDocumentListener( this );
+        editPane.removePropertyChangeListener( "document", this );
+        if ( viewport != null ) {
+            viewport.removeChangeListener( this );
+        }
+        removeHighlights();
+        pending.clear();
+        matchCount = 0;
+        listener = null;
+    }
+
+    // isRunning() - Whether matches are being kept
+    public boolean isRunning() {
+        return running;
+    }
+
+    // isFor() - Whether these are the matches of s
+    public boolean isFor( String s, boolean matchCase ) {
+        return running && pattern.matches( s, matchCase );
+    }
+
+    // getMatchCount() - Matches found so far, all of them if isComplete()
+    public int getMatchCount() {
+        return matchCount;
+    }
+
+    // isComplete() - Whether all of the text has been scanned
+    public boolean isComplete() {
+        return pending.isEmpty();
+    }
+
+    // getMatchNumber() - Number (1 based) of the match starting at offset, or 0
+    //   if there is none.  Only final when the text before it has been scanned.
+    public int getMatchNumber( int offset ) {
+        int index = Arrays.binarySearch( matches, 0, matchCount, offset );
+        return ( index >= 0 ) ? index + 1 : 0;
+    }
+
+    // ---- DocumentListener Methods --------------------------------------
+    public void insertUpdate( DocumentEvent e ) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        int patternLength = pattern.length();
+        // A match running over the insert point is broken, later ones move up.
+        // The old matches after it followed on from its end.
+        int from = Math.max( 0, offset - patternLength + 1 );
+        int broken = lastMatchIn( from, offset );
+        int oldChainEnd = ( broken >= 0 ) ? broken + patternLength + length : 0;
+        removeMatches( from, offset );
+        shiftMatches( offset, length );
+        if ( length > DAMAGE_SCAN_MAX ) {
+            try {
+                addPending( from, Math.max( offset + length, oldChainEnd ) );
+            } catch (BadLocationException ble) {
+                ble.printStackTrace();  // Not expected, the range is the inserted text
+            }
+            scanNextChunk();
+        }
+        else {
+            rescan( chainStart( from ), offset + length, oldChainEnd );
+        }
+        matchesChanged();
+    }
+    public void removeUpdate( DocumentEvent e ) {
+        int offset = e.getOffset();
+        int length = e.getLength();
+        int patternLength = pattern.length();
+        // Matches overlapping the removed text are gone, later ones move back.
+        // New ones may run over the join.
+        int from = Math.max( 0, offset - patternLength + 1 );
+        int broken = lastMatchIn( from, offset + length );
+        int oldChainEnd = ( broken >= 0 ) ? Math.max( offset, broken + patternLength - length ) : 0;
+        removeMatches( from, offset + length );
+        shiftMatches( offset + length, -length );
+        rescan( chainStart( from ), offset, oldChainEnd );
+        matchesChanged();
+    }
+    public void changedUpdate( DocumentEvent e ) {
+        // Attributes only, the text is the same
+    }
+    // ---- End: DocumentListener Methods ---------------------------------
+
+    // The view scrolled
+    public void stateChanged( ChangeEvent e ) {
+        updateHighlights();
+    }
+
+    // The editor has a new Document (a file was opened)
+    public void propertyChange( PropertyChangeEvent e ) {
+        start( pattern.getSource(), pattern.isMatchCase(), listener );
+    }
+
+    // rescan() - Find the matches again from pos, which no match runs over,
+    //   to where they are back in step with the old ones: past changedEnd,
+    //   where the text is as it was, and past oldChainEnd, the end of the
+    //   last old match dropped, where no match runs over.  The old matches
+    //   after that are the ones a search would find.  Text not yet scanned
+    //   is left to the background scan, which goes on from it the same way.
+    private void rescan( int pos, int changedEnd, int oldChainEnd ) {
+        int start = pos;
+        int patternLength = pattern.length();
+        try {
+            while ( pos < Math.max( changedEnd, oldChainEnd ) ) {
+                if ( isPending( pos ) ) {
+                    addPending( pos, Math.max( changedEnd, oldChainEnd ) );
+                    scanNextChunk();
+                    return;
+                }
+                if ( pos - start > DAMAGE_SCAN_MAX && pos >= changedEnd ) {
+                    // Still not in step ("aaaa..."), scan the rest of this
+                    // part in the background
+                    addPending( pos, Math.min( nextPendingStart( pos ), doc.getLength() ) );
+                    scanNextChunk();
+                    return;
+                }
+                int limit = Math.min( nextPendingStart( pos ), Math.max( changedEnd, oldChainEnd ) );
+                int offset = pattern.indexOf( doc, pos, limit );
+                if ( offset < 0 ) {
+                    pos = limit;
+                    continue;
+                }
+                int index = insertionPoint( offset );
+                if ( index == matchCount || matches[index] >= offset + patternLength ) {
+                    insertMatches( new int[] { offset }, 1 );
+                }
+                else if ( matches[index] != offset ) {
+                    // Replaces the old matches it runs over
+                    oldChainEnd = Math.max( oldChainEnd, lastMatchIn( offset, offset + patternLength ) + patternLength );
+                    matches[index] = offset;
+                    removeMatches( offset + 1, offset + patternLength );
+                }
+                pos = offset + patternLength;
+            }
+        } catch (BadLocationException ble) {
+            ble.printStackTrace();      // Not expected, offsets are in the Document
+        }
+    }
+
+    // chainStart() - Where to search from for the matches at or after from:
+    //   the end of the match before it, if that runs past from
+    private int chainStart( int from ) {
+        int index = insertionPoint( from ) - 1;
+        if ( index < 0 || isPending( matches[index], from ) ) {
+            return from;        // Not followed on from the match before
+        }
+        return Math.max( from, matches[index] + pattern.length() );
+    }
+
+    // scanNextChunk() - Scan the next SCAN_CHUNK chars not yet scanned, on a
+    //   background thread.  One chunk at a time; each one done starts the next.
+    private void scanNextChunk() {
+        if ( !running || scanning ) {
+            return;
+        }
+        while ( !pending.isEmpty() ) {
+            Region region = pending.get( 0 );
+            final int start = region.start.getOffset();
+            int end = region.end.getOffset();
+            if ( start >= end ) {
+                pending.remove( 0 );    // Removed by edits
+                continue;
+            }
+            final int limit = (int) Math.min( end, (long) start + SCAN_CHUNK );
+            final int from = chainStart( start );
+            if ( !(doc instanceof EditorDocument) ) {
+                chunkScanned( region, limit );  // No snapshots, scan it here
+                rescan( from, limit, 0 );
+                continue;
+            }
+            final EditorDocument editorDoc = (EditorDocument) doc;
+            final PieceTableContent.Snapshot snapshot = editorDoc.snapshot();
+            final long generation = editorDoc.getEditGeneration();
+            final int id = scanId;
+            final Region scanRegion = region;
+            scanning = true;
+            new SwingWorker<int[], Void>() {
+                protected int[] doInBackground() throws Exception {
+                    return scanSnapshot( snapshot, from, limit );
+                }
+                protected void done() {
+                    scanning = false;
+                    if ( id != scanId ) {
+                        scanNextChunk();    // Stopped, or restarted while this one ran
+                        return;
+                    }
+                    try {
+                        int[] found = get();
+                        // Matches in a changed text are in the wrong places
+                        if ( editorDoc.getEditGeneration() == generation && doc == editorDoc ) {
+                            insertMatches( found, found.length );
+                            chunkScanned( scanRegion, limit );
+                            followChunk( found, limit );
+                            matchesChanged();
+                        }
+                    } catch (Exception e) {
+                        System.err.println("Warning: Highlight All scan failed: " + e);
+                        pending.clear();
+                        matchesChanged();
+                        return;
+                    }
+                    scanNextChunk();
+                }
+            }.execute();
+            return;
+        }
+    }
+
+    // scanSnapshot() - Matches starting in from .. limit of a Snapshot, each
+    //   searched for from the end of the last, on the background thread
+    private int[] scanSnapshot( PieceTableContent.Snapshot snapshot, int from, int limit )
+            throws BadLocationException {
+        int[] found = new int[16];
+        int count = 0;
+        int offset = workerPattern.indexOf( snapshot, from, limit );
+        while ( offset >= 0 ) {
+            if ( count == found.length ) {
+                found = Arrays.copyOf( found, 2 * count );
+            }
+            found[count++] = offset;
+            offset = workerPattern.indexOf( snapshot, offset + workerPattern.length(), limit );
+        }
+        return Arrays.copyOf( found, count );
+    }
+
+    // followChunk() - Matches were found in a chunk ending at limit.  The
+    //   text after it, if it was scanned, was searched from limit on; the
+    //   last match found may run past limit.
+    private void followChunk( int[] found, int limit ) {
+        int patternLength = pattern.length();
+        int pos = ( found.length > 0 ) ? Math.max( limit, found[found.length - 1] + patternLength ) : limit;
+        int oldChainEnd = limit;
+        int dropped = lastMatchIn( limit, pos );
+        if ( dropped >= 0 ) {
+            oldChainEnd = dropped + patternLength;
+            removeMatches( limit, pos );
+        }
+        rescan( pos, limit, oldChainEnd );
+    }
+
+    // chunkScanned() - region has been scanned up to limit
+    private void chunkScanned( Region region, int limit ) {
+        if ( limit >= region.end.getOffset() ) {
+            pending.remove( region );
+        }
+        else {
+            try {
+                region.start = doc.createPosition( limit );
+            } catch (BadLocationException ble) {
+                pending.remove( region );   // Not expected, limit is in the region
+            }
+        }
+    }
+
+    // addPending() - Scan start .. end in the background, except the parts
+    //   already waiting to be scanned.  Regions never overlap, so no match
+    //   is found twice.  Matches in the parts added are dropped until then.
+    private void addPending( int start, int end ) throws BadLocationException {
+        for (Region region : pending) {
+            int regionStart = region.start.getOffset();
+            int regionEnd = region.end.getOffset();
+            if ( regionStart < end && regionEnd > start ) {
+                if ( regionEnd < end ) {
+                    addPending( regionEnd, end );
+                }
+                if ( regionStart > start ) {
+                    addPending( start, regionStart );
+                }
+                return;
+            }
+        }
+        if ( start < end ) {
+            removeMatches( start, end );
+            pending.add( new Region( doc.createPosition( start ), doc.createPosition( end ) ) );
+        }
+    }
+
+    // isPending() - Whether offset is in text not yet scanned
+    private boolean isPending( int offset ) {
+        return isPending( offset, offset + 1 );
+    }
+
+    // isPending() - Whether any of start .. end is not yet scanned
+    private boolean isPending( int start, int end ) {
+        for (Region region : pending) {
+            if ( region.start.getOffset() < end && region.end.getOffset() > start ) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // nextPendingStart() - Start of the next text not yet scanned after
+    //   offset, Integer.MAX_VALUE if none
+    private int nextPendingStart( int offset ) {
+        int next = Integer.MAX_VALUE;
+        for (Region region : pending) {
+            int start = region.start.getOffset();
+            if ( start > offset && start < region.end.getOffset() ) {
+                next = Math.min( next, start );
+            }
+        }
+        return next;
+    }
+
+    // insertMatches() - Add sorted offsets, found where there were no matches
+    private void insertMatches( int[] found, int count ) {
+        if ( count == 0 ) {
+            return;
+        }
+        if ( matchCount + count > matches.length ) {
+            matches = Arrays.copyOf( matches, Math.max( 2 * matches.length, matchCount + count ) );
+        }
+        int at = insertionPoint( found[0] );
+        System.arraycopy( matches, at, matches, at + count, matchCount - at );
+        System.arraycopy( found, 0, matches, at, count );
+        matchCount += count;
+    }
+
+    // removeMatches() - Drop the matches starting in from .. limit
+    private void removeMatches( int from, int limit ) {
+        int first = insertionPoint( from );
+        int last = insertionPoint( limit );
+        if ( last > first ) {
+            System.arraycopy( matches, last, matches, first, matchCount - last );
+            matchCount -= last - first;
+        }
+    }
+
+    // shiftMatches() - Move the matches starting at or after from by delta
+    private void shiftMatches( int from, int delta ) {
+        for (int i = insertionPoint( from ); i < matchCount; i++) {
+            matches[i] += delta;
+        }
+    }
+
+    // lastMatchIn() - Start of the last match starting in from .. limit, or -1
+    private int lastMatchIn( int from, int limit ) {
+        int index = insertionPoint( limit ) - 1;
+        return ( index >= 0 && matches[index] >= from ) ? matches[index] : -1;
+    }
+
+    // insertionPoint() - Index of the first match at or after offset
+    private int insertionPoint( int offset ) {
+        int index = Arrays.binarySearch( matches, 0, matchCount, offset );
+        return ( index >= 0 ) ? index : -index - 1;
+    }
+
+    // matchesChanged() - Update the highlights and tell the listener, once
+    //   for all the changes made before the EDT gets to it
+    private void matchesChanged() {
+        if ( changePending ) {
+            return;
+        }
+        changePending = true;
+        SwingUtilities.invokeLater( new Runnable() {
+            public void run() {
+                changePending = false;
+                if ( running ) {
+                    updateHighlights();
+                    if ( listener != null ) {
+                        listener.stateChanged( new ChangeEvent( MatchHighlighter.this ) );
+                    }
+                }
+            }
+        });
+    }
+
+    // updateHighlights() - Give the Highlighter the matches in and near the
+    //   visible text, at most MAX_HIGHLIGHTS of them
+    private void updateHighlights() {
+        removeHighlights();
+        int[] visible = visibleRange( HIGHLIGHT_MARGIN );
+        int first = insertionPoint( visible[0] );
+        int last = Math.min( insertionPoint( visible[1] ), first + MAX_HIGHLIGHTS );
+        Highlighter highlighter = editPane.getHighlighter();
+        int patternLength = pattern.length();
+        try {
+            for (int i = first; i < last; i++) {
+                highlights.add( highlighter.addHighlight( matches[i], matches[i] + patternLength, painter ) );
+            }
+        } catch (BadLocationException ble) {
+            ble.printStackTrace();      // Not expected, matches are in the Document
+        }
+    }
+
+    private void removeHighlights() {
+        Highlighter highlighter = editPane.getHighlighter();
+        for (Object tag : highlights) {
+            highlighter.removeHighlight( tag );
+        }
+        highlights.clear();
+    }
+
+    // visibleRange() - Offsets of the start and end of the visible text, with
+    //   margin chars more on each side
+    private int[] visibleRange( int margin ) {
+        int length = doc.getLength();
+        Rectangle view = editPane.getVisibleRect();
+        if ( view.width <= 0 || view.height <= 0 ) {
+            return new int[] { 0, Math.min( length, 2 * margin ) };
+        }
+        int start = editPane.viewToModel( new Point( view.x, view.y ) );
+        int end = editPane.viewToModel( new Point( view.x + view.width, view.y + view.height ) );
+        start = Math.max( 0, Math.min( start, length ) - margin );
+        end = (int) Math.min( length, Math.max( start, end ) + (long) margin );
+        return new int[] { start, end };
+    }
+
+    // Region - Text not yet scanned, start .. end
+    private static final class Region {
+        Position start;
+        final Position end;
+
+        Region( Position start, Position end ) {
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+//  ---------------------------------------------
+
+    private final JTextComponent editPane;
+    private Document doc;
+    private JViewport viewport;
+    private TextSearcher.Pattern pattern;
+    private TextSearcher.Pattern workerPattern;     // Used by the background scan
+    private ChangeListener listener;
+    private boolean running = false;
+    private int[] matches = new int[64];    // Start offsets, sorted
+    private int matchCount = 0;
+    private List<Region> pending = new ArrayList<Region>();     // In scan order
+    private boolean scanning = false;       // A chunk is being scanned
+    private int scanId = 0;                 // Changed by stop()
+    private boolean changePending = false;
+    private List<Object> highlights = new ArrayList<Object>();   // Highlighter tags
+    private final Highlighter.HighlightPainter painter =
+        new DefaultHighlighter.DefaultHighlightPainter( HIGHLIGHT_COLOR );
+}
@@ -0,0 +1,422 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * NoWrapTextView.java - View of a whole Document for line-wrap off.        *
+ *                                                                          *
+ * The editor draws all of its text in one font and color, so with line     *
+ * wrap off every line is one row of the same height.  This view uses that  *
+ * instead of laying out a view per paragraph: the row of a line and the    *
+ * line at a y position are arithmetic, and only the lines in the clip are  *
+ * looked at when painting.                                                 *
+ *                                                                          *
+ * The preferred width is the longest line in characters times the width    *
+ * of a 'w', which needs only the line element offsets.  It grows if a      *
+ * painted line turns out to be wider (tabs, wide characters).  The length  *
+ * of each line is kept, with the number of lines of each length, so after  *
+ * an edit the longest line is known without looking at other lines.        *
+ *                                                                          *
+ * Only the first LONG_LINE_LAYOUT_CHARS characters of a line are measured  *
+ * with the font.  Past that each character takes the width of a 'w', so    *
+ * positions in a very long line (a pasted base64 blob) cost the same as    *
+ * in a short one.  With a fixed pitch font this is exact.                  *
+ *                                                                          *
+ * StyledTextEditorKit creates it when line wrap is off.                    *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.awt.Color;
+import java.awt.Container;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.util.TreeMap;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.*;
+
+class NoWrapTextView extends View implements TabExpander {
+
+    //   --- Constants, package scope ---
+    // Characters of a line measured with the font, the rest are fixed width
+    protected static final int LONG_LINE_LAYOUT_CHARS = 4096;
+    //   --- End Constants ---
+
+    NoWrapTextView( Element elem ) {
+        super( elem );
+    }
+
+    // metricsChanged() - The tab size changed, measured widths are stale
+    public void metricsChanged() {
+        widestLine = 0;
+        preferenceChanged( null, true, true );
+    }
+
+    @Override
+    public float getPreferredSpan( int axis ) {
+        updateMetrics();
+        switch ( axis ) {
+            case View.X_AXIS:
+                return Math.max( getLongestLineChars() * cellWidth, widestLine );
+            case View.Y_AXIS:
+                return getElement().getElementCount() * lineHeight;
+            default:
+                throw new IllegalArgumentException( "Invalid axis: " + axis );
+        }
+    }
+
+    @Override
+    public void paint( Graphics g, Shape a ) {
+        updateMetrics();
+        Rectangle alloc = a.getBounds();
+        Rectangle clip = g.getClipBounds();
+        if ( clip == null ) {
+            clip = alloc;
+        }
+        tabBase = alloc.x;
+        JTextComponent host = (JTextComponent) getContainer();
+        Highlighter highlighter = host.getHighlighter();
+        Caret caret = host.getCaret();
+        selectedColor = host.getSelectedTextColor();
+        selStart = selEnd = 0;
+        if ( selectedColor != null && caret != null && caret.isSelectionVisible() ) {
+            selStart = host.getSelectionStart();
+            selEnd = host.getSelectionEnd();
+        }
+        textColor = host.isEnabled() ? host.getForeground() : host.getDisabledTextColor();
+        g.setFont( font );
+
+        Element root = getElement();
+        int first = Math.max( 0, (clip.y - alloc.y) / lineHeight );
+        int last = Math.min( root.getElementCount() - 1, (clip.y + clip.height - alloc.y) / lineHeight );
+        int oldWidest = widestLine;
+        for (int line = first; line <= last; line++) {
+            Element lineElem = root.getElement( line );
+            if ( highlighter instanceof LayeredHighlighter ) {
+                ((LayeredHighlighter) highlighter).paintLayeredHighlights( g,
+                    lineElem.getStartOffset(), lineElem.getEndOffset(), a, host, this );
+            }
+            int y = alloc.y + line * lineHeight;
+            try {
+                drawLine( g, lineElem, alloc.x, y + ascent, clip );
+                widestLine = Math.max( widestLine, getX( lineElem, alloc.x, lineElem.getEndOffset() - 1 ) - alloc.x );
+            } catch (BadLocationException ble) {
+                ble.printStackTrace();      // Not expected, offsets come from the element
+            }
+        }
+        if ( widestLine > oldWidest && widestLine > getLongestLineChars() * cellWidth ) {
+            preferenceChanged( null, true, false );
+        }
+    }
+
+    @Override
+    public Shape modelToView( int pos, Shape a, Position.Bias b ) throws BadLocationException {
+        Element root = getElement();
+        if ( pos < root.getStartOffset() || pos > root.getEndOffset() ) {
+            throw new BadLocationException( "Invalid offset", pos );
+        }
+        updateMetrics();
+        Rectangle alloc = a.getBounds();
+        tabBase = alloc.x;
+        int line = root.getElementIndex( pos );
+        int x = getX( root.getElement( line ), alloc.x, pos );
+        return new Rectangle( x, alloc.y + line * lineHeight, 1, lineHeight );
+    }
+
+    @Override
+    public int viewToModel( float fx, float fy, Shape a, Position.Bias[] bias ) {
+        bias[0] = Position.Bias.Forward;
+        updateMetrics();
+        Rectangle alloc = a.getBounds();
+        tabBase = alloc.x;
+        Element root = getElement();
+        if ( fy < alloc.y ) {
+            return root.getStartOffset();
+        }
+        int line = (int) (fy - alloc.y) / lineHeight;
+        if ( line >= root.getElementCount() ) {
+            return root.getEndOffset() - 1;
+        }
+        Element lineElem = root.getElement( line );
+        if ( fx < alloc.x ) {
+            return lineElem.getStartOffset();
+        }
+        try {
+            return getOffset( lineElem, alloc.x, (int) fx, true );
+        } catch (BadLocationException ble) {
+            return lineElem.getStartOffset();   // Not expected, offsets come from the element
+        }
+    }
+
+    // nextTabStop() - Same tab stops as StyledTextEditorKit paragraphs
+    public float nextTabStop( float x, int tabOffset ) {
+        int tabWidth = StyledTextEditorKit.getTabWidth( this );
+        if ( tabWidth <= 0 ) {
+            return x;
+        }
+        return tabBase + ((int) ((x - tabBase) / tabWidth) + 1) * tabWidth;
+    }
+
+    @Override
+    public void insertUpdate( DocumentEvent e, Shape a, ViewFactory f ) {
+        Element root = getElement();
+        DocumentEvent.ElementChange ec = e.getChange( root );
+        int first = root.getElementIndex( e.getOffset() );
+        if ( ec == null ) {
+            // Typing within a line
+            lineChanged( first, a );
+        }
+        else {
+            linesChanged( ec, first, root.getElementIndex( e.getOffset() + e.getLength() ) );
+        }
+    }
+
+    @Override
+    public void removeUpdate( DocumentEvent e, Shape a, ViewFactory f ) {
+        Element root = getElement();
+        DocumentEvent.ElementChange ec = e.getChange( root );
+        int line = root.getElementIndex( e.getOffset() );
+        if ( ec == null ) {
+            lineChanged( line, a );
+        }
+        else {
+            linesChanged( ec, line, line );
+        }
+    }
+
+    @Override
+    public void changedUpdate( DocumentEvent e, Shape a, ViewFactory f ) {
+        Container host = getContainer();
+        if ( host != null ) {
+            host.repaint();     // Attributes only, nothing moved
+        }
+    }
+
+    // lineChanged() - One line changed but no lines were added or removed
+    private void lineChanged( int line, Shape a ) {
+        if ( lineChars != null ) {
+            int oldLongest = getLongestLineChars();
+            recountLine( line );
+            if ( getLongestLineChars() != oldLongest ) {
+                preferenceChanged( null, true, false );
+            }
+        }
+        Container host = getContainer();
+        if ( host != null && a != null && font != null ) {
+            Rectangle alloc = a.getBounds();
+            host.repaint( alloc.x, alloc.y + line * lineHeight, alloc.width, lineHeight );
+        }
+    }
+
+    // linesChanged() - Lines were added or removed, the following lines
+    //   moved.  Lines first .. last hold the edit.  A line split or joined
+    //   by it may be kept rather than replaced, so they are measured again.
+    private void linesChanged( DocumentEvent.ElementChange ec, int first, int last ) {
+        if ( lineChars != null ) {
+            replaceLines( ec.getIndex(), ec.getChildrenRemoved().length, ec.getChildrenAdded() );
+            for (int line = first; line <= last; line++) {
+                recountLine( line );
+            }
+        }
+        preferenceChanged( null, true, true );
+        Container host = getContainer();
+        if ( host != null ) {
+            host.repaint();
+        }
+    }
+
+    // getLongestLineChars() - Length of the longest line.  The lines are
+    //   counted the first time, after that the counts are kept up to date.
+    private int getLongestLineChars() {
+        if ( lineChars == null ) {
+            Element root = getElement();
+            lineCount = root.getElementCount();
+            lineChars = new int[Math.max( lineCount, 16 )];
+            lengthCounts = new TreeMap<Integer, int[]>();
+            for (int i = 0; i < lineCount; i++) {
+                lineChars[i] = getLineChars( root.getElement( i ) );
+                countLine( lineChars[i] );
+            }
+        }
+        return lengthCounts.isEmpty() ? 0 : lengthCounts.lastKey();
+    }
+
+    // replaceLines() - removed lines from index on were replaced by added
+    private void replaceLines( int index, int removed, Element[] added ) {
+        for (int i = index; i < index + removed; i++) {
+            uncountLine( lineChars[i] );
+        }
+        int newCount = lineCount - removed + added.length;
+        if ( newCount > lineChars.length ) {
+            int[] grown = new int[Math.max( newCount, 2 * lineChars.length )];
+            System.arraycopy( lineChars, 0, grown, 0, lineCount );
+            lineChars = grown;
+        }
+        System.arraycopy( lineChars, index + removed, lineChars, index + added.length,
+            lineCount - index - removed );
+        lineCount = newCount;
+        for (int i = 0; i < added.length; i++) {
+            lineChars[index + i] = getLineChars( added[i] );
+            countLine( lineChars[index + i] );
+        }
+    }
+
+    // recountLine() - Measure a line again
+    private void recountLine( int line ) {
+        uncountLine( lineChars[line] );
+        lineChars[line] = getLineChars( getElement().getElement( line ) );
+        countLine( lineChars[line] );
+    }
+
+    private void countLine( int chars ) {
+        int[] count = lengthCounts.get( chars );
+        if ( count == null ) {
+            lengthCounts.put( chars, new int[] { 1 } );
+        }
+        else {
+            count[0]++;
+        }
+    }
+
+    private void uncountLine( int chars ) {
+        int[] count = lengthCounts.get( chars );
+        if ( --count[0] == 0 ) {
+            lengthCounts.remove( chars );
+        }
+    }
+
+    // Characters in a line, not counting the newline
+    private static int getLineChars( Element lineElem ) {
+        return lineElem.getEndOffset() - lineElem.getStartOffset() - 1;
+    }
+
+    // drawLine() - Draw the part of a line that is inside the clip
+    private void drawLine( Graphics g, Element lineElem, int x0, int y, Rectangle clip ) throws BadLocationException {
+        int end = lineElem.getEndOffset() - 1;      // Before the newline
+        int p0 = getOffset( lineElem, x0, clip.x, false );
+        if ( p0 >= end ) {
+            return;
+        }
+        int p1 = Math.min( end, getOffset( lineElem, x0, clip.x + clip.width, false ) + 1 );
+        int x = getX( lineElem, x0, p0 );
+        // Unselected, selected and unselected again
+        int s0 = Math.max( p0, Math.min( selStart, p1 ) );
+        int s1 = Math.max( s0, Math.min( selEnd, p1 ) );
+        x = drawText( g, lineElem, x0, p0, s0, x, y, textColor );
+        x = drawText( g, lineElem, x0, s0, s1, x, y, selectedColor );
+        drawText( g, lineElem, x0, s1, p1, x, y, textColor );
+    }
+
+    // drawText() - Draw p0..p1 of a line starting at x, returns the x after it
+    private int drawText( Graphics g, Element lineElem, int x0, int p0, int p1, int x, int y, Color color )
+            throws BadLocationException {
+        if ( p0 >= p1 ) {
+            return x;
+        }
+        g.setColor( color );
+        Document doc = getDocument();
+        int limit = lineElem.getStartOffset() + LONG_LINE_LAYOUT_CHARS;
+        if ( p0 < limit ) {
+            int measuredEnd = Math.min( p1, limit );
+            doc.getText( p0, measuredEnd - p0, lineText );
+            x = Utilities.drawTabbedText( lineText, x, y, g, this, p0 );
+            p0 = measuredEnd;
+        }
+        // Past the limit, one 'w' width per character
+        if ( p0 < p1 ) {
+            doc.getText( p0, p1 - p0, lineText );
+            char[] chars = lineText.array;
+            int first = lineText.offset;
+            for (int i = 0; i < p1 - p0; i++) {
+                char ch = chars[first + i];
+                if ( ch != '\t' ) {
+                    charText.array = chars;
+                    charText.offset = first + i;
+                    charText.count = 1;
+                    Utilities.drawTabbedText( charText, x, y, g, this, p0 + i );
+                }
+                x += cellWidth;
+            }
+        }
+        return x;
+    }
+
+    // getX() - x of an offset in a line that starts at x0
+    private int getX( Element lineElem, int x0, int offset ) throws BadLocationException {
+        offset = Math.min( offset, lineElem.getEndOffset() - 1 );
+        int start = lineElem.getStartOffset();
+        int limit = start + LONG_LINE_LAYOUT_CHARS;
+        int measuredEnd = Math.min( offset, limit );
+        getDocument().getText( start, measuredEnd - start, lineText );
+        int x = x0 + Utilities.getTabbedTextWidth( lineText, metrics, x0, this, start );
+        if ( offset > limit ) {
+            x += (offset - limit) * cellWidth;
+        }
+        return x;
+    }
+
+    // getOffset() - Offset at x in a line that starts at x0.  With round the
+    //   nearest character boundary, otherwise the character under x.
+    private int getOffset( Element lineElem, int x0, int x, boolean round ) throws BadLocationException {
+        int start = lineElem.getStartOffset();
+        int end = lineElem.getEndOffset() - 1;      // Before the newline
+        int measuredEnd = Math.min( end, start + LONG_LINE_LAYOUT_CHARS );
+        getDocument().getText( start, measuredEnd - start, lineText );
+        int measuredX = x0 + Utilities.getTabbedTextWidth( lineText, metrics, x0, this, start );
+        if ( x < measuredX || measuredEnd == end ) {
+            return start + Utilities.getTabbedTextOffset( lineText, metrics, x0, x, this, start, round );
+        }
+        int cells = (x - measuredX + (round ? cellWidth / 2 : 0)) / cellWidth;
+        return Math.min( end, measuredEnd + cells );
+    }
+
+    // updateMetrics() - Font measurements, again when the font changes
+    private void updateMetrics() {
+        Container host = getContainer();
+        Font f = host.getFont();
+        if ( font != f ) {
+            font = f;
+            metrics = host.getFontMetrics( f );
+            lineHeight = Math.max( 1, metrics.getHeight() );
+            ascent = metrics.getAscent();
+            cellWidth = Math.max( 1, metrics.charWidth( 'w' ) );
+            widestLine = 0;
+        }
+    }
+
+    //  ---------------------------------------------
+    private Font font = null;
+    private FontMetrics metrics;
+    private int lineHeight;
+    private int ascent;
+    private int cellWidth;                  // Width of a 'w'
+    private int tabBase;                    // x of the line starts
+    private int[] lineChars = null;         // Chars in each line, null until counted
+    private int lineCount;
+    private TreeMap<Integer, int[]> lengthCounts;  // Number of lines of each length
+    private int widestLine = 0;             // Widest painted line, pixels
+    private final Segment lineText = new Segment();
+    private final Segment charText = new Segment();
+    // Set up by paint() for drawLine()
+    private Color textColor;
+    private Color selectedColor;
+    private int selStart;
+    private int selEnd;
+}
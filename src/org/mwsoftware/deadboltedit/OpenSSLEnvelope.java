@@ -0,0 +1,87 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * OpenSSLEnvelope.java - JCE implementation of the salted OpenSSL          *
+ *                         envelope ("Salted__" + salt + ciphertext) used   *
+ *                         by legacy (version 0/1) DeadboltEdit encrypted   *
+ *                         files.  These are only read, so only what        *
+ *                         decryption needs is here.                        *
+ *                                                                          *
+ * Key and IV are derived with OpenSSL's EVP_BytesToKey() (MD5, one         *
+ * iteration), which is what org.apache.commons.ssl.OpenSSL used for        *
+ * "blowfish" (bf-cbc, 128-bit key).  The cipher is in BlowfishEngine.      *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.util.Arrays;
+import java.security.*;
+
+public class OpenSSLEnvelope {
+    //
+    //   --- Constants, package scope ---
+    protected static final byte[] SALT_MAGIC = { 'S', 'a', 'l', 't', 'e', 'd', '_', '_' };
+    protected static final int SALT_LENGTH = 8;
+    protected static final int PREFIX_LENGTH = SALT_MAGIC.length + SALT_LENGTH;
+    //
+    //   --- End Constants ---
+
+    // saltFromPrefix() - Extract salt from envelope prefix, null if prefix is invalid
+    public static byte[] saltFromPrefix( byte[] prefix ) {
+        if ( prefix.length < PREFIX_LENGTH ) {
+            return null;
+        }
+        for (int i=0; i<SALT_MAGIC.length; i++) {
+            if ( prefix[i] != SALT_MAGIC[i] ) {
+                return null;
+            }
+        }
+        return Arrays.copyOfRange( prefix, SALT_MAGIC.length, PREFIX_LENGTH );
+    }
+
+    // bytesToKey() - OpenSSL EVP_BytesToKey() with MD5 and a single iteration.
+    //   Password chars are narrowed to bytes, same as commons-ssl.
+    static byte[] bytesToKey( char[] password, byte[] salt, int length )
+            throws GeneralSecurityException {
+        byte[] pw = new byte[password.length];
+        for (int i=0; i<password.length; i++) {
+            pw[i] = (byte) password[i];
+        }
+        MessageDigest md = MessageDigest.getInstance( "MD5" );
+        byte[] result = new byte[length];
+        byte[] block = new byte[0];
+        int filled = 0;
+        try {
+            while ( filled < length ) {
+                md.update( block );
+                md.update( pw );
+                md.update( salt );
+                Arrays.fill( block, (byte) 0 );
+                block = md.digest();
+                int n = Math.min( block.length, length - filled );
+                System.arraycopy( block, 0, result, filled, n );
+                filled += n;
+            }
+        } finally {
+            Arrays.fill( pw, (byte) 0 );
+            Arrays.fill( block, (byte) 0 );
+        }
+        return result;
+    }
+}
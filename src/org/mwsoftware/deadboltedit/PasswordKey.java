@@ -0,0 +1,101 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * PasswordKey.java - A password-derived AES key, cached for saves.         *
+ *                                                                          *
+ * The key is derived from the password with PBKDF2 (ChunkCipher.deriveKey) *
+ * and kept with its salt and KDF iterations, so a file can be saved again  *
+ * without the password or another key derivation.  The key bytes are kept  *
+ * in a direct (off-heap) buffer, which the garbage collector doesn't copy, *
+ * and are zeroed by destroy().  SecretKey objects returned by getKey() are *
+ * short-lived copies for one encryption.                                   *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Arrays;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import javax.security.auth.Destroyable;
+
+public class PasswordKey implements Destroyable {
+
+    private PasswordKey( byte[] salt, int kdfIterations, byte[] keyBytes ) {
+        this.salt = salt.clone();
+        this.kdfIterations = kdfIterations;
+        this.keyBuffer = ByteBuffer.allocateDirect( keyBytes.length );
+        this.keyBuffer.put( keyBytes );
+        this.destroyed = false;
+    }
+
+    // derive() - Derive the key for password, salt and kdfIterations
+    public static PasswordKey derive( char[] password, byte[] salt, int kdfIterations )
+            throws GeneralSecurityException {
+        byte[] keyBytes = ChunkCipher.deriveKey( password, salt, kdfIterations ).getEncoded();
+        try {
+            return new PasswordKey( salt, kdfIterations, keyBytes );
+        } finally {
+            Arrays.fill( keyBytes, (byte) 0 );
+        }
+    }
+
+    // getKey() - The key, for one encryption or decryption
+    public synchronized SecretKey getKey() {
+        if ( destroyed ) {
+            throw new IllegalStateException( "Password key has been destroyed." );
+        }
+        byte[] keyBytes = new byte[keyBuffer.capacity()];
+        keyBuffer.position( 0 );
+        keyBuffer.get( keyBytes );
+        try {
+            return new SecretKeySpec( keyBytes, "AES" );
+        } finally {
+            Arrays.fill( keyBytes, (byte) 0 );
+        }
+    }
+
+    public byte[] getSalt() {
+        return salt.clone();
+    }
+
+    public int getKdfIterations() {
+        return kdfIterations;
+    }
+
+    // destroy() - Zero the key bytes.  The key can't be used after this.
+    public synchronized void destroy() {
+        for (int i=0; i<keyBuffer.capacity(); i++) {
+            keyBuffer.put( i, (byte) 0 );
+        }
+        destroyed = true;
+    }
+
+    public synchronized boolean isDestroyed() {
+        return destroyed;
+    }
+
+//  ---------------------------------------------
+
+    private byte[] salt;            // PBKDF2 salt, stored in the file header
+    private int kdfIterations;      // PBKDF2 iterations, stored in the file header
+    private ByteBuffer keyBuffer;   // Key bytes, off-heap
+    private boolean destroyed;
+}
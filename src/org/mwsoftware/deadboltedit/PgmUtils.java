@@ -117,6 +117,12 @@ public class PgmUtils {
         }
     }
 
+    // Return MD5 Hash value of a completed digest, same format as MD5Hash()
+    // (used when the data was hashed incrementally)
+    public static String MD5Hash(MessageDigest md) {
+        return new BigInteger(1,md.digest()).toString(16);
+    }
+
     // Strip non-ASCII characters from a String.  We're also removing DEL (X'7F'),
     // which is a legal ASCII char but should never be in our editor buffer.
     // Added for Rev. 1.09 bug fix.
@@ -0,0 +1,729 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * PieceTableContent.java - Document content kept as a piece table.         *
+ *                                                                          *
+ * The text is a list of pieces, each a range of chars in a buffer that is  *
+ * never changed once written.  Large inserts (the chunks of a file being   *
+ * loaded) keep their own buffer, smaller ones (typing, pasting) are        *
+ * appended to an add buffer.  An edit only splits the pieces at its        *
+ * offset, so inserts anywhere in a large note cost about the same, with    *
+ * no gap to move and no buffer to grow and copy.                           *
+ *                                                                          *
+ * Because the buffers never change, snapshot() only has to copy the piece  *
+ * list.  A Snapshot can be read on another thread (e.g. by a save) while   *
+ * the Document goes on being edited.                                       *
+ *                                                                          *
+ * Positions are kept the way GapContent keeps them: marks sorted by an     *
+ * index with a (virtual) gap at the last edit, so an edit only updates     *
+ * the marks between it and the last edit.                                  *
+ *                                                                          *
+ * Undo edits keep the text they removed.  With an UndoSpillFile set, large *
+ * texts of old edits are kept in an encrypted temp file instead.           *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.IOException;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+import javax.swing.text.Segment;
+import javax.swing.undo.AbstractUndoableEdit;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.UndoableEdit;
+
+public class PieceTableContent implements AbstractDocument.Content {
+    //
+    //   --- Constants, package scope ---
+    // Inserts shorter than LARGE_INSERT chars go into the add buffer, which
+    // is allocated in blocks of ADD_BLOCK_SIZE chars.
+    protected static final int ADD_BLOCK_SIZE = 64 * 1024;
+    protected static final int LARGE_INSERT = 4 * 1024;
+    // Size of the virtual gap in mark index space.  Inserts shrink it, so it
+    // is much larger than any Document can be.
+    protected static final long MARK_GAP_SIZE = 1L << 40;
+    //
+    //   --- End Constants ---
+
+    // The content starts with the implied newline at the end
+    public PieceTableContent() {
+        pieces = new Piece[16];
+        pieceOffsets = new int[16];
+        pieces[0] = new Piece( new char[] { '\n' }, 0, 1 );
+        pieceOffsets[0] = 0;
+        pieceCount = 1;
+        length = 1;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    // setUndoSpillFile() - Where the undo edits made from now on keep large
+    //   removed texts, null to keep them in memory
+    public void setUndoSpillFile( UndoSpillFile undoSpillFile ) {
+        this.undoSpillFile = undoSpillFile;
+    }
+
+    public UndoableEdit insertString( int where, String str ) throws BadLocationException {
+        if ( where > length || where < 0 ) {
+            throw new BadLocationException( "Invalid insert", length );
+        }
+        int n = str.length();
+        if ( n > 0 ) {
+            insertText( where, str );
+            // Marks at where move up with the text, except at 0
+            moveMarkGap( where );
+            markGapStart += n;
+            markGapSize -= n;
+        }
+        return new InsertUndo( where, n );
+    }
+
+    public UndoableEdit remove( int where, int nitems ) throws BadLocationException {
+        if ( where + nitems >= length ) {
+            throw new BadLocationException( "Invalid remove", length + 1 );
+        }
+        String removedString = getString( where, nitems );
+        UndoableEdit edit = new RemoveUndo( where, removedString );
+        if ( nitems > 0 ) {
+            removeText( where, nitems );
+            // Marks in the removed range end up at where
+            moveMarkGap( where );
+            long gapEnd = markGapStart + markGapSize;
+            int n = marks.size();
+            for (int i = marks.findSortIndex( gapEnd ); i < n; i++) {
+                Mark mark = marks.elementAt( i );
+                if ( mark.index >= gapEnd + nitems ) {
+                    break;
+                }
+                mark.index = gapEnd + nitems;
+            }
+            markGapSize += nitems;
+            resetMarksAtZero();
+        }
+        return edit;
+    }
+
+    public String getString( int where, int len ) throws BadLocationException {
+        Segment segment = new Segment();
+        getChars( where, len, segment );
+        return new String( segment.array, segment.offset, segment.count );
+    }
+
+    // getChars() - Text within one piece is returned without copying, as is
+    //   the first piece of a longer range if txt allows a partial return.
+    public void getChars( int where, int len, Segment txt ) throws BadLocationException {
+        getChars( pieces, pieceOffsets, pieceCount, length, where, len, txt );
+    }
+
+    public Position createPosition( int offset ) throws BadLocationException {
+        if ( offset < 0 || offset > length ) {
+            throw new BadLocationException( "Invalid position", offset );
+        }
+        while ( queue.poll() != null ) {
+            unusedMarks++;
+        }
+        if ( unusedMarks > Math.max( 5, marks.size() / 10 ) ) {
+            marks.removeUnused();
+            unusedMarks = 0;
+        }
+        long index = (offset < markGapStart) ? offset : offset + markGapSize;
+        int sortIndex = marks.findSortIndex( index );
+        StickyPosition position;
+        if ( sortIndex < marks.size() && marks.elementAt( sortIndex ).index == index
+                && (position = marks.elementAt( sortIndex ).get()) != null ) {
+            return position;    // Share the existing Position
+        }
+        position = new StickyPosition();
+        position.mark = new Mark( index, position, queue );
+        marks.insertElementAt( position.mark, sortIndex );
+        return position;
+    }
+
+    // snapshot() - The current text, as a Snapshot that later edits don't
+    //   change.  Only the piece list is copied.  Call it with the Document
+    //   read lock held.
+    public Snapshot snapshot() {
+        return new Snapshot( Arrays.copyOf( pieces, pieceCount ), Arrays.copyOf( pieceOffsets, pieceCount ),
+            pieceCount, length );
+    }
+
+    // insertText() - Insert str into the piece list.  Typing at the end of
+    //   the last text added just extends that piece.
+    private void insertText( int where, String str ) {
+        int n = str.length();
+        int i = findPiece( pieceOffsets, pieceCount, length, where );
+        boolean atPieceStart = (i == pieceCount) || (pieceOffsets[i] == where);
+        if ( atPieceStart && i > 0 && n < LARGE_INSERT ) {
+            Piece prev = pieces[i - 1];
+            if ( prev.buffer == addBuffer && prev.start + prev.length == addUsed
+                    && addUsed + n <= addBuffer.length ) {
+                str.getChars( 0, n, addBuffer, addUsed );
+                addUsed += n;
+                pieces[i - 1] = new Piece( addBuffer, prev.start, prev.length + n );
+                for (int k = i; k < pieceCount; k++) {
+                    pieceOffsets[k] += n;
+                }
+                length += n;
+                return;
+            }
+        }
+        Piece piece = newPiece( str );
+        if ( atPieceStart ) {
+            replacePieces( i, i, piece, null, null );
+        }
+        else {
+            Piece p = pieces[i];
+            int split = where - pieceOffsets[i];
+            replacePieces( i, i + 1, new Piece( p.buffer, p.start, split ), piece,
+                new Piece( p.buffer, p.start + split, p.length - split ) );
+        }
+        length += n;
+    }
+
+    // newPiece() - Copy str into a buffer, its own or the add buffer
+    private Piece newPiece( String str ) {
+        int n = str.length();
+        if ( n >= LARGE_INSERT ) {
+            return new Piece( str.toCharArray(), 0, n );
+        }
+        if ( addBuffer == null || addUsed + n > addBuffer.length ) {
+            addBuffer = new char[ADD_BLOCK_SIZE];      // The old block stays with its pieces
+            addUsed = 0;
+        }
+        str.getChars( 0, n, addBuffer, addUsed );
+        Piece piece = new Piece( addBuffer, addUsed, n );
+        addUsed += n;
+        return piece;
+    }
+
+    // removeText() - Remove nitems chars at where from the piece list,
+    //   keeping the parts of the end pieces outside the range
+    private void removeText( int where, int nitems ) {
+        int first = findPiece( pieceOffsets, pieceCount, length, where );
+        int last = findPiece( pieceOffsets, pieceCount, length, where + nitems - 1 );
+        Piece left = null;
+        Piece right = null;
+        int keep = where - pieceOffsets[first];
+        if ( keep > 0 ) {
+            left = new Piece( pieces[first].buffer, pieces[first].start, keep );
+        }
+        int skip = where + nitems - pieceOffsets[last];
+        if ( skip < pieces[last].length ) {
+            right = new Piece( pieces[last].buffer, pieces[last].start + skip, pieces[last].length - skip );
+        }
+        if ( left == null ) {
+            left = right;
+            right = null;
+        }
+        replacePieces( first, last + 1, left, right, null );
+        length -= nitems;
+    }
+
+    // replacePieces() - Replace pieces first to end - 1 with up to 3 pieces
+    //   (trailing nulls are left out), and fix the offsets after them
+    private void replacePieces( int first, int end, Piece p1, Piece p2, Piece p3 ) {
+        int added = (p1 == null) ? 0 : (p2 == null) ? 1 : (p3 == null) ? 2 : 3;
+        int newCount = pieceCount - (end - first) + added;
+        if ( newCount > pieces.length ) {
+            int capacity = Math.max( newCount, 2 * pieces.length );
+            pieces = Arrays.copyOf( pieces, capacity );
+            pieceOffsets = Arrays.copyOf( pieceOffsets, capacity );
+        }
+        System.arraycopy( pieces, end, pieces, first + added, pieceCount - end );
+        if ( added > 0 ) pieces[first] = p1;
+        if ( added > 1 ) pieces[first + 1] = p2;
+        if ( added > 2 ) pieces[first + 2] = p3;
+        for (int k = newCount; k < pieceCount; k++) {
+            pieces[k] = null;
+        }
+        pieceCount = newCount;
+        int offset = (first == 0) ? 0 : pieceOffsets[first - 1] + pieces[first - 1].length;
+        for (int k = first; k < pieceCount; k++) {
+            pieceOffsets[k] = offset;
+            offset += pieces[k].length;
+        }
+    }
+
+    // findPiece() - Index of the piece holding offset, count at the end
+    private static int findPiece( int[] offsets, int count, int length, int offset ) {
+        if ( offset >= length ) {
+            return count;
+        }
+        int lo = 0;
+        int hi = count - 1;
+        while ( lo < hi ) {
+            int mid = (lo + hi + 1) >>> 1;
+            if ( offsets[mid] <= offset ) {
+                lo = mid;
+            }
+            else {
+                hi = mid - 1;
+            }
+        }
+        return lo;
+    }
+
+    private static void getChars( Piece[] pieces, int[] offsets, int count, int length,
+            int where, int len, Segment txt ) throws BadLocationException {
+        if ( len < 0 ) {
+            throw new BadLocationException( "Length must be positive", len );
+        }
+        if ( where < 0 || where + len > length ) {
+            throw new BadLocationException( "Invalid location", length + 1 );
+        }
+        if ( len == 0 ) {
+            txt.array = new char[0];
+            txt.offset = 0;
+            txt.count = 0;
+            return;
+        }
+        int i = findPiece( offsets, count, length, where );
+        Piece piece = pieces[i];
+        int pos = where - offsets[i];
+        if ( pos + len <= piece.length || txt.isPartialReturn() ) {
+            txt.array = piece.buffer;
+            txt.offset = piece.start + pos;
+            txt.count = Math.min( len, piece.length - pos );
+            return;
+        }
+        char[] copy = new char[len];
+        int copied = 0;
+        while ( copied < len ) {
+            int n = Math.min( len - copied, pieces[i].length - pos );
+            System.arraycopy( pieces[i].buffer, pieces[i].start + pos, copy, copied, n );
+            copied += n;
+            pos = 0;
+            i++;
+        }
+        txt.array = copy;
+        txt.offset = 0;
+        txt.count = len;
+    }
+
+    // moveMarkGap() - Move the virtual gap to offset where.  Marks at where
+    //   end up after the gap (so an insert moves them), except at offset 0.
+    private void moveMarkGap( int where ) {
+        int n = marks.size();
+        if ( where > markGapStart ) {
+            // Marks from the gap up to where move below the gap
+            long gapEnd = markGapStart + markGapSize;
+            for (int i = marks.findSortIndex( gapEnd ); i < n; i++) {
+                Mark mark = marks.elementAt( i );
+                if ( mark.index >= where + markGapSize ) {
+                    break;
+                }
+                mark.index -= markGapSize;
+            }
+        }
+        else if ( where < markGapStart ) {
+            // Marks from where up to the gap move above it
+            for (int i = marks.findSortIndex( where ); i < n; i++) {
+                Mark mark = marks.elementAt( i );
+                if ( mark.index >= markGapStart ) {
+                    break;
+                }
+                mark.index += markGapSize;
+            }
+        }
+        markGapStart = where;
+        resetMarksAtZero();
+    }
+
+    // resetMarksAtZero() - With the gap at 0, give the marks at offset 0
+    //   index 0, so they stay there when text is inserted at 0
+    private void resetMarksAtZero() {
+        if ( markGapStart == 0 ) {
+            int n = marks.size();
+            for (int i = 0; i < n; i++) {
+                Mark mark = marks.elementAt( i );
+                if ( mark.index > markGapSize ) {
+                    break;
+                }
+                mark.index = 0;
+            }
+        }
+    }
+
+    // getPositionsInRange() - Marks from offset to offset + len, with their
+    //   offsets, for updateUndoPositions() after the text is put back
+    private List<UndoPosRef> getPositionsInRange( int offset, int len ) {
+        List<UndoPosRef> refs = new ArrayList<UndoPosRef>();
+        int n = marks.size();
+        for (int i = findMarkAtOffset( offset ); i < n; i++) {
+            Mark mark = marks.elementAt( i );
+            if ( mark.getOffset() > offset + len ) {
+                break;
+            }
+            refs.add( new UndoPosRef( mark ) );
+        }
+        return refs;
+    }
+
+    // updateUndoPositions() - Put the marks saved by getPositionsInRange()
+    //   back where they were, after len chars were inserted at offset
+    private void updateUndoPositions( List<UndoPosRef> refs, int offset, int len ) {
+        int start = findMarkAtOffset( offset );
+        int end = findMarkAtOffset( offset + len + 1 );
+        for (UndoPosRef ref : refs) {
+            int undoOffset = ref.undoOffset;
+            ref.mark.index = (undoOffset < markGapStart) ? undoOffset : undoOffset + markGapSize;
+        }
+        // The restored marks are in the same part of the vector, re-sort it
+        if ( end - start > 1 ) {
+            Mark[] sorted = new Mark[end - start];
+            for (int i = start; i < end; i++) {
+                sorted[i - start] = marks.elementAt( i );
+            }
+            Arrays.sort( sorted, new Comparator<Mark>() {
+                public int compare( Mark m1, Mark m2 ) {
+                    return (m1.index < m2.index) ? -1 : (m1.index > m2.index) ? 1 : 0;
+                }
+            });
+            for (int i = start; i < end; i++) {
+                marks.setElementAt( sorted[i - start], i );
+            }
+        }
+    }
+
+    // findMarkAtOffset() - Vector index of the first mark at or after offset
+    private int findMarkAtOffset( int offset ) {
+        int lo = 0;
+        int hi = marks.size();
+        while ( lo < hi ) {
+            int mid = (lo + hi) >>> 1;
+            if ( marks.elementAt( mid ).getOffset() < offset ) {
+                lo = mid + 1;
+            }
+            else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    // Piece - Chars start to start + length - 1 of buffer.  Never changed,
+    //   edits replace pieces.
+    private static final class Piece {
+        final char[] buffer;
+        final int start;
+        final int length;
+
+        Piece( char[] buffer, int start, int length ) {
+            this.buffer = buffer;
+            this.start = start;
+            this.length = length;
+        }
+    }
+
+    // Snapshot - The text at the time of snapshot().  It can be read on any
+    //   thread; the pieces and the buffer chars they cover never change.
+    public static final class Snapshot {
+        private final Piece[] pieces;
+        private final int[] offsets;
+        private final int count;
+        private final int length;
+
+        private Snapshot( Piece[] pieces, int[] offsets, int count, int length ) {
+            this.pieces = pieces;
+            this.offsets = offsets;
+            this.count = count;
+            this.length = length;
+        }
+
+        // length() - Same as Content.length(), includes the implied newline
+        public int length() {
+            return length;
+        }
+
+        public void getChars( int where, int len, Segment txt ) throws BadLocationException {
+            PieceTableContent.getChars( pieces, offsets, count, length, where, len, txt );
+        }
+    }
+
+    // Mark - Where a Position is.  index is the offset below the virtual gap
+    //   and offset + markGapSize above it.
+    private final class Mark extends WeakReference<StickyPosition> {
+        long index;
+
+        Mark( long index, StickyPosition position, ReferenceQueue<? super StickyPosition> queue ) {
+            super( position, queue );
+            this.index = index;
+        }
+
+        int getOffset() {
+            long offset = (index < markGapStart) ? index : index - markGapSize;
+            return (int) Math.max( offset, 0 );
+        }
+    }
+
+    private final class StickyPosition implements Position {
+        private Mark mark;
+
+        public int getOffset() {
+            return mark.getOffset();
+        }
+
+        public String toString() {
+            return Integer.toString( getOffset() );
+        }
+    }
+
+    // MarkVector - Marks sorted by index, in an array with a gap where the
+    //   last one was added, so adding marks near each other is cheap
+    private static final class MarkVector {
+        private Mark[] array = new Mark[16];
+        private int gapStart = 0;
+        private int gapEnd = 16;
+
+        int size() {
+            return array.length - (gapEnd - gapStart);
+        }
+
+        Mark elementAt( int i ) {
+            return array[(i < gapStart) ? i : i + (gapEnd - gapStart)];
+        }
+
+        void setElementAt( Mark mark, int i ) {
+            array[(i < gapStart) ? i : i + (gapEnd - gapStart)] = mark;
+        }
+
+        void insertElementAt( Mark mark, int i ) {
+            if ( gapStart == gapEnd ) {
+                resize( 2 * array.length );
+            }
+            if ( i < gapStart ) {
+                int n = gapStart - i;
+                System.arraycopy( array, i, array, gapEnd - n, n );
+                gapStart -= n;
+                gapEnd -= n;
+            }
+            else if ( i > gapStart ) {
+                int n = i - gapStart;
+                System.arraycopy( array, gapEnd, array, gapStart, n );
+                gapStart += n;
+                gapEnd += n;
+            }
+            array[gapStart++] = mark;
+        }
+
+        // findSortIndex() - First vector index with a mark at or above index
+        int findSortIndex( long index ) {
+            int lo = 0;
+            int hi = size();
+            while ( lo < hi ) {
+                int mid = (lo + hi) >>> 1;
+                if ( elementAt( mid ).index < index ) {
+                    lo = mid + 1;
+                }
+                else {
+                    hi = mid;
+                }
+            }
+            return lo;
+        }
+
+        // removeUnused() - Drop the marks of Positions no longer referenced
+        void removeUnused() {
+            int n = size();
+            int kept = 0;
+            for (int i = 0; i < n; i++) {
+                Mark mark = elementAt( i );
+                if ( mark.get() != null ) {
+                    setElementAt( mark, kept++ );
+                }
+            }
+            Mark[] newArray = new Mark[Math.max( 16, 2 * kept )];
+            for (int i = 0; i < kept; i++) {
+                newArray[i] = elementAt( i );
+            }
+            array = newArray;
+            gapStart = kept;
+            gapEnd = newArray.length;
+        }
+
+        private void resize( int capacity ) {
+            Mark[] newArray = new Mark[capacity];
+            int tail = array.length - gapEnd;
+            System.arraycopy( array, 0, newArray, 0, gapStart );
+            System.arraycopy( array, gapEnd, newArray, capacity - tail, tail );
+            gapEnd = capacity - tail;
+            array = newArray;
+        }
+    }
+
+    // UndoPosRef - A mark and its offset before the text around it was removed
+    private static final class UndoPosRef {
+        final Mark mark;
+        final int undoOffset;
+
+        UndoPosRef( Mark mark ) {
+            this.mark = mark;
+            this.undoOffset = mark.getOffset();
+        }
+    }
+
+    // HeldTextEdit - An undo edit that holds the text it removed.  Large texts
+    //   are held by the UndoSpillFile, if there is one, and may be read back
+    //   from disk.
+    abstract class HeldTextEdit extends AbstractUndoableEdit {
+        private String string;
+        private UndoSpillFile.Payload payload;
+
+        void holdText( String text ) {
+            if ( replaying ) {
+                return;         // The edit made by undo() or redo() is dropped
+            }
+            if ( undoSpillFile != null && UndoSpillFile.spillable( text.length() ) ) {
+                payload = undoSpillFile.hold( text );
+            }
+            else {
+                string = text;
+            }
+        }
+
+        String takeText() throws IOException {
+            String text = string;
+            string = null;
+            if ( payload != null ) {
+                text = undoSpillFile.take( payload );
+                payload = null;
+            }
+            return text;
+        }
+
+        public void die() {
+            super.die();
+            string = null;
+            if ( payload != null ) {
+                undoSpillFile.release( payload );
+                payload = null;
+            }
+        }
+    }
+
+    final class InsertUndo extends HeldTextEdit {
+        private int offset;
+        private int length;
+        private List<UndoPosRef> posRefs;
+
+        InsertUndo( int offset, int length ) {
+            this.offset = offset;
+            this.length = length;
+        }
+
+        // The removed text is held while undone
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                posRefs = getPositionsInRange( offset, length );
+                holdText( getString( offset, length ) );
+                replaying = true;
+                remove( offset, length );
+            } catch (BadLocationException ble) {
+                throw new CannotUndoException();
+            } finally {
+                replaying = false;
+            }
+        }
+
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try {
+                insertString( offset, takeText() );
+                updateUndoPositions( posRefs, offset, length );
+                posRefs = null;
+            } catch (BadLocationException ble) {
+                throw new CannotRedoException();
+            } catch (IOException ioe) {
+                System.err.println("Error: Cannot redo - " + ioe.getMessage());
+                throw new CannotRedoException();
+            }
+        }
+    }
+
+    final class RemoveUndo extends HeldTextEdit {
+        private int offset;
+        private int length;
+        private List<UndoPosRef> posRefs;
+
+        // The removed text is held while not undone
+        RemoveUndo( int offset, String string ) {
+            this.offset = offset;
+            this.length = string.length();
+            holdText( string );
+            posRefs = getPositionsInRange( offset, length );
+        }
+
+        public void undo() throws CannotUndoException {
+            super.undo();
+            try {
+                insertString( offset, takeText() );
+                updateUndoPositions( posRefs, offset, length );
+                posRefs = null;
+            } catch (BadLocationException ble) {
+                throw new CannotUndoException();
+            } catch (IOException ioe) {
+                System.err.println("Error: Cannot undo - " + ioe.getMessage());
+                throw new CannotUndoException();
+            }
+        }
+
+        public void redo() throws CannotRedoException {
+            super.redo();
+            try {
+                holdText( getString( offset, length ) );
+                posRefs = getPositionsInRange( offset, length );
+                replaying = true;
+                remove( offset, length );
+            } catch (BadLocationException ble) {
+                throw new CannotRedoException();
+            } finally {
+                replaying = false;
+            }
+        }
+    }
+
+//  ---------------------------------------------
+
+    private Piece[] pieces;
+    private int[] pieceOffsets;     // Content offset of each piece
+    private int pieceCount;
+    private int length;             // Total chars, including the implied newline
+    private char[] addBuffer;       // Current add buffer block
+    private int addUsed;            // Chars used in addBuffer
+    // Positions
+    private MarkVector marks = new MarkVector();
+    private ReferenceQueue<StickyPosition> queue = new ReferenceQueue<StickyPosition>();
+    private int unusedMarks = 0;
+    private long markGapStart = 0;
+    private long markGapSize = MARK_GAP_SIZE;
+    // Undo
+    private UndoSpillFile undoSpillFile = null;
+    private boolean replaying = false;      // In an undo edit's undo() or redo()
+}
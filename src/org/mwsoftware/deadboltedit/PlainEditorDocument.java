@@ -1,6 +1,6 @@
 /*
  ****************************************************************************
- * Copyright (C) 2018   Michael Wright   All Rights Reserved                *
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
  *                                                                          *
  * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
  *                                                                          *
@@ -16,43 +16,49 @@
  * that accompanied this code).                                             *
  *                                                                          *
  *                                                                          *
- * DefaultStyledDocumentHelper.java - A helper class for                    *
- *                                    DefaultStyledDocument                 *
+ * PlainEditorDocument.java - The editor's Document in plain text mode.     *
  *                                                                          *
+ * See EditorDocument.                                                      *
  *                                                                          *
  ****************************************************************************
  */
 package org.mwsoftware.deadboltedit;
 
-import javax.swing.*;
-import javax.swing.text.*;
-import java.awt.FontMetrics;
+import javax.swing.text.PlainDocument;
 
-public class StyledDocumentHelper {
+public class PlainEditorDocument extends PlainDocument implements EditorDocument {
 
-    private static int MaxTabsPerLine = 100;
-    
-    public StyledDocumentHelper() 
-    {
-        //
+    public PlainEditorDocument() {
+        super( new TrackingContent() );
     }
-    public void setTabs( JTextPane textPane, int charactersPerTab ) {
-        FontMetrics fm = textPane.getFontMetrics( textPane.getFont() );
-        int charWidth = fm.charWidth( 'w' );
-        int tabWidth = charWidth * charactersPerTab;
 
-        TabStop[] tabs = new TabStop[MaxTabsPerLine];
+    public long getEditGeneration() {
+        return ((TrackingContent) getContent()).getGeneration();
+    }
+
+    public long getChecksum() {
+        return ((TrackingContent) getContent()).getChecksum();
+    }
 
-        for (int j = 0; j < tabs.length; j++)
-        {
-           int tab = j + 1;
-           tabs[j] = new TabStop( tab * tabWidth );
+    public int textHashCode() {
+        readLock();
+        try {
+            return ((TrackingContent) getContent()).textHashCode();
+        } finally {
+            readUnlock();
         }
+    }
+
+    public PieceTableContent.Snapshot snapshot() {
+        readLock();
+        try {
+            return ((TrackingContent) getContent()).snapshot();
+        } finally {
+            readUnlock();
+        }
+    }
 
-        TabSet tabSet = new TabSet(tabs);
-        SimpleAttributeSet attributes = new SimpleAttributeSet();
-        StyleConstants.setTabSet(attributes, tabSet);
-        int length = textPane.getDocument().getLength();
-        textPane.getStyledDocument().setParagraphAttributes(0, length, attributes, false);          
+    public void setUndoSpillFile( UndoSpillFile undoSpillFile ) {
+        ((TrackingContent) getContent()).setUndoSpillFile( undoSpillFile );
     }
 }
@@ -46,7 +46,7 @@ import java.awt.print.PrinterJob;
 import java.text.MessageFormat;
 import javax.swing.JTextPane;
 import javax.swing.text.Document;
-import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.PlainDocument;
 
 
 public class PrintRenderer {
@@ -54,26 +54,21 @@ public class PrintRenderer {
     
     public PrintRenderer(Font font, int tabSize) {
         textPane = new JTextPane();
+        textPane.setEditorKit( new StyledTextEditorKit() );     // Tab size from a Document property
         textPane.setForeground(Color.black);
         textPane.setBackground(Color.white);
         if (font != null){
             textPane.setFont( font );
         }
         if (tabSize != 0 ) {
-            //    Dependence: Tab Size must be set AFTER setting font, FontMetrics are used
-            //    to calculate tab spacing
             Document printableDoc = textPane.getDocument();
-            if ( printableDoc instanceof DefaultStyledDocument ) {
-                if ( (tabSize < 1) || (tabSize > PgmUtils.MAX_TABSIZE) ) {
-                    System.err.println("Error: PrintRenderer.setTabSize() - tab.size out of range, using DefaultStyledDocument default.");
-                }
-                StyledDocumentHelper docHelper = new StyledDocumentHelper();
-                docHelper.setTabs(textPane, tabSize);
-                printableDoc = null;
+            if ( (tabSize < 1) || (tabSize > PgmUtils.MAX_TABSIZE) ) {
+                System.err.println("Error: PrintRenderer.setTabSize() - tab.size out of range, using default.");
             }
             else {
-                System.err.println("Error: PrintRenderer.setTabSize() - Cannot set tab size - Default Document type not DefaultStyledDocument.\n");
+                printableDoc.putProperty( PlainDocument.tabSizeAttribute, Integer.valueOf( tabSize ) );
             }
+            printableDoc = null;
         }
     }
         
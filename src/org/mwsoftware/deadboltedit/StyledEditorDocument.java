@@ -0,0 +1,65 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * StyledEditorDocument.java - The editor's Document for a JTextPane.       *
+ *                                                                          *
+ * See EditorDocument.                                                      *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyleContext;
+
+public class StyledEditorDocument extends DefaultStyledDocument implements EditorDocument {
+
+    public StyledEditorDocument() {
+        super( new TrackingContent(), new StyleContext() );
+    }
+
+    public long getEditGeneration() {
+        return ((TrackingContent) getContent()).getGeneration();
+    }
+
+    public long getChecksum() {
+        return ((TrackingContent) getContent()).getChecksum();
+    }
+
+    public int textHashCode() {
+        readLock();
+        try {
+            return ((TrackingContent) getContent()).textHashCode();
+        } finally {
+            readUnlock();
+        }
+    }
+
+    public PieceTableContent.Snapshot snapshot() {
+        readLock();
+        try {
+            return ((TrackingContent) getContent()).snapshot();
+        } finally {
+            readUnlock();
+        }
+    }
+
+    public void setUndoSpillFile( UndoSpillFile undoSpillFile ) {
+        ((TrackingContent) getContent()).setUndoSpillFile( undoSpillFile );
+    }
+}
@@ -0,0 +1,213 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * StyledTextEditorKit.java - Editor kit for the styled editor mode.        *
+ *                                                                          *
+ * Creates StyledEditorDocuments, and views that put a tab stop every       *
+ * tab size characters (the width of a 'w' in the component's font).        *
+ * The tab size is the Document property PlainDocument.tabSizeAttribute,    *
+ * the same one a JTextArea uses in plain text mode.  Setting it is one     *
+ * property change: no TabSet on the paragraph elements, no Document        *
+ * event or undoable edit, and no limit on the number of tabs in a line.    *
+ * tabSizeChanged() then has the views laid out again.                      *
+ *                                                                          *
+ * The whole Document is one WrappedTextView, which wraps the paragraphs    *
+ * incrementally, or with line wrap off (setLineWrap()) one NoWrapTextView. *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.awt.Container;
+import java.awt.FontMetrics;
+import java.util.Map;
+import javax.swing.JEditorPane;
+import javax.swing.text.*;
+
+public class StyledTextEditorKit extends StyledEditorKit {
+    //
+    //   --- Constants, package scope ---
+    // Tab size when the Document has none, same as PlainDocument
+    protected static final int DEFAULT_TAB_SIZE = 8;
+    //
+    //   --- End Constants ---
+
+    @Override
+    public Document createDefaultDocument() {
+        return new StyledEditorDocument();
+    }
+
+    @Override
+    public ViewFactory getViewFactory() {
+        return viewFactory;
+    }
+
+    // tabSizeChanged() - Lay out the paragraphs of textPane again after its
+    //   Document tab size property was changed.  Only the views are marked,
+    //   the Document isn't touched.
+    public static void tabSizeChanged( JTextComponent textPane ) {
+        invalidateParagraphs( textPane.getUI().getRootView( textPane ) );
+        textPane.revalidate();
+        textPane.repaint();
+    }
+
+    private static void invalidateParagraphs( View view ) {
+        if ( view instanceof TabSizeParagraphView ) {
+            view.preferenceChanged( null, true, true );
+            return;
+        }
+        if ( view instanceof NoWrapTextView ) {
+            ((NoWrapTextView) view).metricsChanged();
+            return;
+        }
+        for (int i=0; i<view.getViewCount(); i++) {
+            invalidateParagraphs( view.getView( i ) );
+        }
+    }
+
+    // setLineWrap() - Switch textPane between wrapped paragraphs and one
+    //   NoWrapTextView for the whole Document.  The UI is installed again to
+    //   build the new views, keeping the caret and selection.
+    public static void setLineWrap( JEditorPane textPane, boolean lineWrap ) {
+        EditorKit kit = textPane.getEditorKit();
+        if ( !(kit instanceof StyledTextEditorKit) || ((StyledTextEditorKit) kit).lineWrap == lineWrap ) {
+            return;
+        }
+        ((StyledTextEditorKit) kit).lineWrap = lineWrap;
+        int dot = textPane.getCaret().getDot();
+        int mark = textPane.getCaret().getMark();
+        textPane.updateUI();
+        textPane.setCaretPosition( mark );
+        textPane.moveCaretPosition( dot );
+    }
+
+    // getTabWidth() - Tab width in pixels for a view: tab size characters,
+    //   each the width of a 'w' in the container's font
+    static int getTabWidth( View view ) {
+        Object tabSize = view.getDocument().getProperty( PlainDocument.tabSizeAttribute );
+        int chars = (tabSize instanceof Integer) ? ((Integer) tabSize).intValue() : DEFAULT_TAB_SIZE;
+        Container c = view.getContainer();
+        if ( c == null ) {
+            return 0;
+        }
+        FontMetrics fm = c.getFontMetrics( c.getFont() );
+        return chars * fm.charWidth( 'w' );
+    }
+
+    // saveWrapHeights() - Keep the paragraph heights of a WrappedTextView
+    //   that is going away, for the next one on the same unedited Document
+    void saveWrapHeights( Document doc, Map<Integer, int[]> heights ) {
+        wrapHeights = null;
+        if ( doc instanceof EditorDocument && !heights.isEmpty() ) {
+            wrapHeights = heights;
+            wrapHeightsDoc = doc;
+            wrapHeightsGeneration = ((EditorDocument) doc).getEditGeneration();
+        }
+    }
+
+    // takeWrapHeights() - Heights saved for doc, null if none or it was edited
+    Map<Integer, int[]> takeWrapHeights( Document doc ) {
+        Map<Integer, int[]> heights = null;
+        if ( wrapHeights != null && doc == wrapHeightsDoc
+                && ((EditorDocument) doc).getEditGeneration() == wrapHeightsGeneration ) {
+            heights = wrapHeights;
+        }
+        wrapHeights = null;
+        wrapHeightsDoc = null;
+        return heights;
+    }
+
+    // TabSizeViewFactory - StyledEditorKit views, with TabSizeParagraphViews
+    //   for paragraphs.  The Document is a WrappedTextView, or a NoWrapTextView
+    //   if line wrap is off.
+    private class TabSizeViewFactory implements ViewFactory {
+        private ViewFactory styledViewFactory = new StyledEditorKit().getViewFactory();
+
+        public View create( Element elem ) {
+            if ( elem == elem.getDocument().getDefaultRootElement() ) {
+                if ( lineWrap ) {
+                    return new WrappedTextView( elem, StyledTextEditorKit.this );
+                }
+                return new NoWrapTextView( elem );
+            }
+            if ( AbstractDocument.ParagraphElementName.equals( elem.getName() ) ) {
+                return new TabSizeParagraphView( elem );
+            }
+            return styledViewFactory.create( elem );
+        }
+    }
+
+    // TabSizeParagraphView - Expands tabs to the next multiple of the tab
+    //   width, computed when needed instead of read from a TabSet
+    static class TabSizeParagraphView extends ParagraphView {
+
+        TabSizeParagraphView( Element elem ) {
+            super( elem );
+            poolStart = elem.getStartOffset();
+            poolEnd = elem.getEndOffset();
+        }
+
+        // GlyphViews keep the word breaks they find as Document offsets, and
+        // only forget them when their own text is edited.  After an edit in
+        // front of them, rows laid out again (a new width, or a paragraph
+        // WrappedTextView wraps later) break words apart.  So a paragraph
+        // that has moved, or changed length with more than one run of text,
+        // gets new views before its rows are built again.
+        @Override
+        protected void layout( int width, int height ) {
+            if ( width != layoutSpan || !isLayoutValid( X_AXIS ) ) {
+                Element elem = getElement();
+                int start = elem.getStartOffset();
+                int end = elem.getEndOffset();
+                if ( start != poolStart || (end != poolEnd && elem.getElementCount() > 1) ) {
+                    View[] views = new View[elem.getElementCount()];
+                    for (int i = 0; i < views.length; i++) {
+                        views[i] = getViewFactory().create( elem.getElement( i ) );
+                    }
+                    layoutPool.replace( 0, layoutPool.getViewCount(), views );
+                    layoutChanged( X_AXIS );
+                    layoutChanged( Y_AXIS );
+                }
+                poolStart = start;
+                poolEnd = end;
+            }
+            super.layout( width, height );
+        }
+
+        @Override
+        public float nextTabStop( float x, int tabOffset ) {
+            int tabWidth = getTabWidth( this );
+            if ( tabWidth <= 0 ) {
+                return x;
+            }
+            float tabBase = getTabBase();
+            return tabBase + ((int) ((x - tabBase) / tabWidth) + 1) * tabWidth;
+        }
+
+        private int poolStart;      // Offsets when the rows were last built
+        private int poolEnd;
+    }
+
+//  ---------------------------------------------
+
+    private ViewFactory viewFactory = new TabSizeViewFactory();
+    private boolean lineWrap = true;    // See setLineWrap()
+    private Map<Integer, int[]> wrapHeights = null;     // See saveWrapHeights()
+    private Document wrapHeightsDoc = null;
+    private long wrapHeightsGeneration;
+}
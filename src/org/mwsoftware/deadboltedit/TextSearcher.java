@@ -28,13 +28,21 @@
  */
 package org.mwsoftware.deadboltedit;
  
-import javax.swing.JTextPane;
+import java.text.NumberFormat;
+import java.util.Arrays;
+import javax.swing.event.ChangeListener;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.event.UndoableEditListener;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.JTextComponent;
 import javax.swing.text.BadLocationException;   // needed for BadLocationException
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
 
 public class TextSearcher {
-    public TextSearcher( JTextPane ep ) 
+    public TextSearcher( JTextComponent ep ) 
     {
-        this.editPane = ep; // Reference to JTextPane
+        this.editPane = ep; // Reference to editor component
         searchString = null;
         replaceString = null;
         searchIndex = -1;
@@ -42,9 +50,6 @@ public class TextSearcher {
         matchCount = 0;
         matchCase = true;
         dialogLock = false;
-        
-        // get system clipboard for copy/paste
-        clipboard = java.awt.Toolkit.getDefaultToolkit().getSystemClipboard();
     }
     
     // findMatchCase() 
@@ -52,35 +57,7 @@ public class TextSearcher {
         this.searchString = s;
         this.matchCase = true;
         this.matchCount = 0;
-        int editorTextLength = editPane.getDocument().getLength();
-        // Bug:  String text = editPane.getText();
-        // editPane.getText() returns with platform-specific line endings, causing
-        // inconsistent search offests on Windows (crlf).
-        // Use editPane.getDocument().getText(0, len) instead, which always uses "/n".
-        String text = null;
-        try {
-            text = editPane.getDocument().getText(0, editorTextLength);
-        }
-        catch (BadLocationException ble) {
-            // Should never happen, but .....
-            System.err.println("Warning: TextSearcher.findMatchCase(): BadLocationException reading edit text.");
-            editorTextLength = 0;
-        }
-
-        if ( (searchString.length() > 0) && (editorTextLength > 0) ) {
-            searchIndex = text.indexOf( searchString );
-            if (searchIndex >=0 ) {
-                matchCount++;
-                editPane.setCaretPosition( searchIndex );
-                editPane.setSelectionStart( searchIndex );
-                editPane.setSelectionEnd( searchIndex + searchString.length() );
-                nextSearchOffset = searchIndex + searchString.length();
-            }
-            return( searchIndex );
-        } else {
-            nextSearchOffset = 0;
-            return( -1 );   // Could make this different (-2)
-        }
+        return( findFrom( 0 ) );
     }
     
     // findIgnoreCase()
@@ -88,49 +65,35 @@ public class TextSearcher {
         this.searchString = s;
         this.matchCase = false;
         this.matchCount = 0;
-        int editorTextLength = editPane.getDocument().getLength();
-        String text = null;
-        try {
-            text = editPane.getDocument().getText(0, editorTextLength).toLowerCase();
-        }
-        catch (BadLocationException ble) {
-            // Should never happen, but .....
-            System.err.println("Warning: TextSearcher.findMatchCase(): BadLocationException reading edit text.");
-            editorTextLength = 0;
-        }
-
-        if ( (searchString.length() > 0) && (editorTextLength > 0) ) {
-            searchIndex = text.indexOf( searchString.toLowerCase() );
-            if (searchIndex >=0 ) {
-                matchCount++;
-                editPane.setCaretPosition( searchIndex );
-                editPane.setSelectionStart( searchIndex );
-                editPane.setSelectionEnd( searchIndex + searchString.length() );
-                nextSearchOffset = searchIndex + searchString.length();
-            }
-            return( searchIndex );
-        } else {
-            nextSearchOffset = 0;
-            return( -1 );   // Could make this different (-2)
-        }
+        return( findFrom( 0 ) );
     }
     
     // findNextMatchCase()
     public int findNextMatchCase( ) {
         this.matchCase = true;
-        int editorTextLength = editPane.getDocument().getLength();
-        String text = null;
-        try {
-            text = editPane.getDocument().getText(0, editorTextLength);
-        }
-        catch (BadLocationException ble) {
-            // Should never happen, but .....
-            System.err.println("Warning: TextSearcher.findMatchCase(): BadLocationException reading edit text.");
-            editorTextLength = 0;
-        }
-
-        if ( (searchString.length() > 0) && (editorTextLength > 0) ) {
-            searchIndex = text.indexOf( searchString, nextSearchOffset );
+        return( findFrom( nextSearchOffset ) );
+    }
+    
+    // findNextIgnoreCase()
+    public int findNextIgnoreCase( ) {
+        this.matchCase = false;
+        return( findFrom( nextSearchOffset ) );
+    }
+    
+    // findFrom() - Find the search string at or after offset from, and select
+    // it.  Returns the offset found, or -1.
+    private int findFrom( int from ) {
+        updateHighlightAll();
+        Document doc = editPane.getDocument();
+        if ( (searchString.length() > 0) && (doc.getLength() > 0) ) {
+            try {
+                searchIndex = patternFor( searchString, matchCase ).indexOf( doc, from );
+            }
+            catch (BadLocationException ble) {
+                // Should never happen, but .....
+                System.err.println("Warning: TextSearcher.findFrom(): BadLocationException reading edit text.");
+                searchIndex = -1;
+            }
             if (searchIndex >=0 ) {
                 matchCount++;
                 editPane.setCaretPosition( searchIndex );
@@ -145,42 +108,197 @@ public class TextSearcher {
         }
     }
     
-    // findNextIgnoreCase()
-    public int findNextIgnoreCase( ) {
-        this.matchCase = false;
-        int editorTextLength = editPane.getDocument().getLength();
-        String text = null;
-        try {
-            text = editPane.getDocument().getText(0, editorTextLength).toLowerCase();
+    // patternFor() - The Pattern of the search string, made again only when
+    // the search string or the match case setting changes
+    private Pattern patternFor( String s, boolean matchCase ) {
+        if ( pattern == null || !pattern.matches( s, matchCase ) ) {
+            pattern = new Pattern( s, matchCase );
         }
-        catch (BadLocationException ble) {
-            // Should never happen, but .....
-            System.err.println("Warning: TextSearcher.findMatchCase(): BadLocationException reading edit text.");
-            editorTextLength = 0;
+        return( pattern );
+    }
+    
+    // Pattern - A search string, compiled for Boyer-Moore-Horspool matching.
+    // Ignoring case, the pattern is case folded once and Document chars are
+    // folded as they are compared, one char to one char, so offsets found
+    // are offsets in the Document (String.toLowerCase() can change the
+    // length of the text).
+    // The Document text is scanned a Segment at a time, in place, so nothing
+    // is copied.  (Document.getText() with "\n" line endings, not the
+    // component's getText(), which has platform line endings.)
+    static final class Pattern {
+        
+        Pattern( String s, boolean matchCase ) {
+            this.source = s;
+            this.matchCase = matchCase;
+            this.chars = new char[s.length()];
+            for (int k = 0; k < chars.length; k++) {
+                chars[k] = fold( s.charAt( k ) );
+            }
+            // Shift for the char under the last pattern position: the distance
+            // from its last occurrence (but the last) to the end of the pattern.
+            // Chars share a slot by their low byte; the smallest shift wins.
+            int last = chars.length - 1;
+            Arrays.fill( shifts, chars.length );
+            for (int k = 0; k < last; k++) {
+                shifts[chars[k] & SHIFT_MASK] = last - k;
+            }
         }
-
-        if ( (searchString.length() > 0) && (editorTextLength > 0) ) {
-            searchIndex = text.indexOf( searchString.toLowerCase(), nextSearchOffset );
-            if (searchIndex >=0 ) {
-                matchCount++;
-                editPane.setCaretPosition( searchIndex );
-                editPane.setSelectionStart( searchIndex );
-                editPane.setSelectionEnd( searchIndex + searchString.length() );
-                nextSearchOffset = searchIndex + searchString.length();
+        
+        boolean matches( String s, boolean matchCase ) {
+            return( this.matchCase == matchCase && source.equals( s ) );
+        }
+        
+        String getSource() {
+            return( source );
+        }
+        
+        boolean isMatchCase() {
+            return( matchCase );
+        }
+        
+        int length() {
+            return( chars.length );
+        }
+        
+        // indexOf() - Offset of the first match at or after from, or -1
+        int indexOf( Document doc, int from ) throws BadLocationException {
+            return( indexOf( doc, null, doc.getLength(), from, Integer.MAX_VALUE ) );
+        }
+        
+        // indexOf() - Offset of the first match that starts at or after from
+        // and before limit, or -1.  The match may end after limit.
+        int indexOf( Document doc, int from, int limit ) throws BadLocationException {
+            return( indexOf( doc, null, doc.getLength(), from, limit ) );
+        }
+        
+        // indexOf() - The same in a Snapshot of the text, which can be searched
+        // on any thread (by its own Pattern, a Pattern isn't thread safe)
+        int indexOf( PieceTableContent.Snapshot snapshot, int from, int limit ) throws BadLocationException {
+            return( indexOf( null, snapshot, snapshot.length() - 1, from, limit ) );
+        }
+        
+        // indexOf() - Search the Document or the Snapshot, of textLength chars.
+        // Matches inside a Segment are found by Horspool skips.  One that
+        // starts near the end of a Segment and runs into the next is checked
+        // by matchesAt().
+        private int indexOf( Document doc, PieceTableContent.Snapshot snapshot, int textLength, int from, int limit )
+                throws BadLocationException {
+            int patternLength = chars.length;
+            int last = patternLength - 1;
+            char lastChar = chars[last];
+            // Last offset a match can start at
+            int lastStart = Math.min( textLength - patternLength, limit - 1 );
+            segment.setPartialReturn( true );
+            int pos = Math.max( 0, from );
+            while ( pos <= lastStart ) {
+                getText( doc, snapshot, pos, textLength - pos, segment );
+                char[] array = segment.array;
+                int segStart = segment.offset;
+                // Matches that start in this Segment and end in it
+                int inSegmentEnd = segStart + Math.min( segment.count - patternLength, lastStart - pos );
+                int i = segStart;
+                while ( i <= inSegmentEnd ) {
+                    char ch = fold( array[i + last] );
+                    if ( ch == lastChar ) {
+                        int k = last - 1;
+                        while ( k >= 0 && fold( array[i + k] ) == chars[k] ) {
+                            k--;
+                        }
+                        if ( k < 0 ) {
+                            return( pos + (i - segStart) );
+                        }
+                    }
+                    i += shifts[ch & SHIFT_MASK];
+                }
+                // Matches that start in this Segment and run into the next
+                int scanEnd = segStart + Math.min( segment.count - 1, lastStart - pos );
+                for ( ; i <= scanEnd; i++) {
+                    if ( fold( array[i] ) == chars[0] && matchesAt( doc, snapshot, pos + (i - segStart) + 1, 1 ) ) {
+                        return( pos + (i - segStart) );
+                    }
+                }
+                pos += segment.count;
+            }
+            return( -1 );
+        }
+        
+        // matchesAt() - Whether the text from offset matches the pattern from
+        // index k on, reading it through its own Segment
+        private boolean matchesAt( Document doc, PieceTableContent.Snapshot snapshot, int offset, int k )
+                throws BadLocationException {
+            spanSegment.setPartialReturn( true );
+            while ( k < chars.length ) {
+                getText( doc, snapshot, offset, chars.length - k, spanSegment );
+                int end = spanSegment.offset + spanSegment.count;
+                for (int i = spanSegment.offset; i < end; i++) {
+                    if ( fold( spanSegment.array[i] ) != chars[k++] ) {
+                        return( false );
+                    }
+                }
+                offset += spanSegment.count;
+            }
+            return( true );
+        }
+        
+        private static void getText( Document doc, PieceTableContent.Snapshot snapshot, int offset, int length,
+                Segment txt ) throws BadLocationException {
+            if ( doc != null ) {
+                doc.getText( offset, length, txt );
+            }
+            else {
+                snapshot.getChars( offset, length, txt );
             }
-            return( searchIndex );
-        } else {
-            nextSearchOffset = 0;
-            return( -1 );   // Could make this different (-2)
         }
+        
+        // fold() - A char as compared: itself when matching case, otherwise
+        // its simple case folding (upper then lower case, so e.g. the Kelvin
+        // sign matches k).  ASCII is folded by table.
+        private char fold( char ch ) {
+            if ( matchCase ) {
+                return( ch );
+            }
+            if ( ch < ASCII_FOLD.length ) {
+                return( ASCII_FOLD[ch] );
+            }
+            return( Character.toLowerCase( Character.toUpperCase( ch ) ) );
+        }
+        
+        private static final int SHIFT_MASK = 0xFF;
+        private static final char[] ASCII_FOLD = new char[128];
+        static {
+            for (char ch = 0; ch < ASCII_FOLD.length; ch++) {
+                ASCII_FOLD[ch] = Character.toLowerCase( ch );
+            }
+        }
+        
+        private final String source;
+        private final boolean matchCase;
+        private final char[] chars;         // Folded pattern
+        private final int[] shifts = new int[SHIFT_MASK + 1];
+        private final Segment segment = new Segment();        // Text being searched
+        private final Segment spanSegment = new Segment();    // Text of a match spanning Segments
     }
     
+    // replaceSelectedString() - Replace the selection (the match found) with
+    // replacementStr, as one edit.  Done through the Document, not the
+    // clipboard and paste(), so the clipboard is left alone.
     public void replaceSelectedString( String replacementStr ) {
         this.replaceString = replacementStr;
-        // copy replacement string to system clipboard
-        java.awt.datatransfer.StringSelection selection = new java.awt.datatransfer.StringSelection(replaceString);
-        clipboard.setContents(selection, selection);
-        editPane.paste();   // replace selection in edit buffer
+        Document doc = editPane.getDocument();
+        if ( !editPane.isEditable() || !(doc instanceof AbstractDocument) ) {
+            return;
+        }
+        int start = editPane.getSelectionStart();
+        try {
+            replaceAsOneEdit( (AbstractDocument) doc, start, editPane.getSelectionEnd() - start,
+                replaceString, "Replace" );
+        }
+        catch (BadLocationException ble) {
+            // Should never happen, but .....
+            System.err.println("Warning: TextSearcher.replaceSelectedString(): BadLocationException replacing text.");
+            return;
+        }
+        searchIndex = start;
         // now highlight (select) the replacement text
         editPane.setCaretPosition( searchIndex );
         editPane.setSelectionStart( searchIndex );
@@ -192,6 +310,110 @@ public class TextSearcher {
         //editPane.setSelectionEnd( nextSearchOffset );
     }
     
+    // replaceAll() - Replace every match of s with replacementStr, as one
+    // edit that is undone in one step.  Matches are found in one pass, then
+    // the text from the first match to the end of the last is rebuilt and
+    // put in with a single Document replace.  Returns the number replaced,
+    // 0 if the editor is read-only (a file still loading).
+    public int replaceAll( String s, String replacementStr, boolean matchCase ) {
+        this.searchString = s;
+        this.replaceString = replacementStr;
+        this.matchCase = matchCase;
+        this.matchCount = 0;
+        updateHighlightAll();
+        Document doc = editPane.getDocument();
+        if ( s.length() <= 0 || !editPane.isEditable() || !(doc instanceof AbstractDocument) ) {
+            return( 0 );
+        }
+        Pattern p = patternFor( s, matchCase );
+        int length = s.length();
+        int[] matches = new int[16];
+        int count = 0;
+        StringBuilder text = null;
+        try {
+            // All the matches, not overlapping
+            int offset = p.indexOf( doc, 0 );
+            while ( offset >= 0 ) {
+                if ( count == matches.length ) {
+                    matches = Arrays.copyOf( matches, 2 * count );
+                }
+                matches[count++] = offset;
+                offset = p.indexOf( doc, offset + length );
+            }
+            if ( count == 0 ) {
+                return( 0 );
+            }
+            // The new text from the first match to the end of the last
+            int first = matches[0];
+            int end = matches[count - 1] + length;
+            text = new StringBuilder( end - first + count * (replacementStr.length() - length) );
+            for (int i = 0; i < count; i++) {
+                if ( i > 0 ) {
+                    appendText( doc, matches[i - 1] + length, matches[i], text );
+                }
+                text.append( replacementStr );
+            }
+            replaceAsOneEdit( (AbstractDocument) doc, first, end - first, text.toString(), "Replace All" );
+        }
+        catch (BadLocationException ble) {
+            // Should never happen, but .....
+            System.err.println("Warning: TextSearcher.replaceAll(): BadLocationException reading edit text.");
+            return( 0 );
+        }
+        matchCount = count;
+        searchIndex = matches[0] + text.length() - replacementStr.length();     // Last replacement
+        editPane.setCaretPosition( searchIndex );
+        editPane.setSelectionStart( searchIndex );
+        editPane.setSelectionEnd( searchIndex + replacementStr.length() );
+        nextSearchOffset = searchIndex + replacementStr.length();
+        return( count );
+    }
+    
+    // appendText() - Append the Document text from start to end to text, a
+    // Segment at a time
+    private void appendText( Document doc, int start, int end, StringBuilder text ) throws BadLocationException {
+        textSegment.setPartialReturn( true );
+        while ( start < end ) {
+            doc.getText( start, end - start, textSegment );
+            text.append( textSegment.array, textSegment.offset, textSegment.count );
+            start += textSegment.count;
+        }
+    }
+    
+    // replaceAsOneEdit() - Replace length chars at offset with text.  The
+    // Document's remove and insert edits are collected into one
+    // CompoundDocumentEdit, which the UndoableEditListeners get instead, so
+    // the replace is undone in one step.
+    private void replaceAsOneEdit( AbstractDocument doc, int offset, int length, String text, String name )
+            throws BadLocationException {
+        final UndoHistory.CompoundDocumentEdit compound = new UndoHistory.CompoundDocumentEdit( name );
+        UndoableEditListener collector = new UndoableEditListener() {
+            public void undoableEditHappened( UndoableEditEvent e ) {
+                compound.addEdit( e.getEdit() );
+            }
+        };
+        UndoableEditListener[] listeners = doc.getUndoableEditListeners();
+        for (UndoableEditListener listener : listeners) {
+            doc.removeUndoableEditListener( listener );
+        }
+        doc.addUndoableEditListener( collector );
+        try {
+            doc.replace( offset, length, text, null );
+        } finally {
+            doc.removeUndoableEditListener( collector );
+            for (UndoableEditListener listener : listeners) {
+                doc.addUndoableEditListener( listener );
+            }
+            compound.end();
+            if ( compound.isSignificant() ) {
+                UndoableEditEvent event = new UndoableEditEvent( doc, compound );
+                for (int i = listeners.length - 1; i >= 0; i--) {
+                    listeners[i].undoableEditHappened( event );
+                }
+            }
+        }
+    }
+    
     public boolean canContinueSearch() {
         if ((searchString != null) && (searchIndex >= 0) && (nextSearchOffset > 0)) {
             return( true );
@@ -212,6 +434,8 @@ public class TextSearcher {
     
     public void resetDialogLock() {
         this.dialogLock = false;
+        this.matchListener = null;
+        updateHighlightAll();   // Highlights go with the dialog
     }
     
     public String getSearchString() {
@@ -230,9 +454,58 @@ public class TextSearcher {
         return( matchCase );
     }
     
+    // setHighlightAll() - Turn Highlight All on or off.  While on, and a Find
+    // dialog is open, all matches of the search string are highlighted and
+    // counted (see MatchHighlighter); listener is told as the count changes.
+    public void setHighlightAll( boolean on, ChangeListener listener ) {
+        this.highlightAll = on;
+        this.matchListener = listener;
+        updateHighlightAll();
+    }
+    
+    public boolean isHighlightAllSet() {
+        return( highlightAll );
+    }
+    
+    // getMatchStatus() - Status line text for the match found: "Found match
+    // 37 of 12,408" with Highlight All, "Found match #37" without.  With
+    // Highlight All and no match selected, the number of matches.
+    public String getMatchStatus() {
+        if ( matchHighlighter == null || !matchHighlighter.isRunning() ) {
+            return( "Found match #" + matchCount );
+        }
+        NumberFormat format = NumberFormat.getIntegerInstance();
+        String total = format.format( matchHighlighter.getMatchCount() );
+        int number = ( searchIndex >= 0 ) ? matchHighlighter.getMatchNumber( searchIndex ) : 0;
+        if ( !matchHighlighter.isComplete() ) {
+            String counted = "(" + total + " found so far)";
+            return( number > 0 ? "Found match #" + matchCount + " " + counted : "Highlight All: " + counted );
+        }
+        if ( number > 0 ) {
+            return( "Found match " + format.format( number ) + " of " + total );
+        }
+        return( "Highlight All: " + total + " matches" );
+    }
+    
+    // updateHighlightAll() - Start, restart or stop highlighting, for the
+    // current search string and settings
+    private void updateHighlightAll() {
+        if ( highlightAll && dialogLock && searchString != null && searchString.length() > 0 ) {
+            if ( matchHighlighter == null ) {
+                matchHighlighter = new MatchHighlighter( editPane );
+            }
+            if ( !matchHighlighter.isFor( searchString, matchCase ) ) {
+                matchHighlighter.start( searchString, matchCase, matchListener );
+            }
+        }
+        else if ( matchHighlighter != null ) {
+            matchHighlighter.stop();
+        }
+    }
+    
 //  ---------------------------------------------
     
-    private JTextPane editPane;
+    private JTextComponent editPane;
     private String searchString;
     private String replaceString;
     private int searchIndex;    // Index in text buffer
@@ -240,6 +513,9 @@ public class TextSearcher {
     private int matchCount;     // No. matches of current search string
     private boolean matchCase;
     private boolean dialogLock;     // Lock by active Dialog
-    
-    java.awt.datatransfer.Clipboard clipboard;
+    private Pattern pattern;        // Compiled search string
+    private boolean highlightAll = false;
+    private MatchHighlighter matchHighlighter;
+    private ChangeListener matchListener;     // Of the dialog
+    private Segment textSegment = new Segment();    // Text kept by Replace All
 }
@@ -0,0 +1,122 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * TrackingContent.java - Document content with cheap change tracking.      *
+ *                                                                          *
+ * The content keeps an edit generation (incremented by every insert and    *
+ * remove, including undo and redo) and a checksum of all the characters    *
+ * in the document, both updated as the text changes at a cost that         *
+ * depends only on the size of the edit.  DeadboltEdit compares them with   *
+ * the values remembered when the file was loaded or saved, so it doesn't   *
+ * need to copy the whole text on every keystroke to find out whether       *
+ * there are unsaved changes.                                               *
+ *                                                                          *
+ * The checksum is a sum over the characters, so it doesn't depend on their *
+ * order.  Equal checksums (e.g. after an undo back to the saved text) are  *
+ * confirmed with textHashCode(), which walks the text once without         *
+ * copying it.                                                              *
+ *                                                                          *
+ * Both editor documents (StyledEditorDocument and PlainEditorDocument)     *
+ * use it, see EditorDocument.                                              *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Segment;
+import javax.swing.undo.UndoableEdit;
+
+class TrackingContent extends PieceTableContent {
+
+    // getGeneration() - Changes each time the text changes
+    public long getGeneration() {
+        return generation;
+    }
+
+    // getChecksum() - Order-independent checksum of the text
+    public long getChecksum() {
+        return checksum;
+    }
+
+    // textHashCode() - Hash of the text, same as String.hashCode() of the
+    //   Document text, computed without copying the text.  Call it with the
+    //   Document read lock held.
+    public int textHashCode() {
+        int hash = 0;
+        try {
+            Segment segment = new Segment();
+            segment.setPartialReturn( true );
+            int offset = 0;
+            int docLength = length() - 1;      // Not the implied newline
+            while ( offset < docLength ) {
+                getChars( offset, docLength - offset, segment );
+                for (int i = segment.offset; i < segment.offset + segment.count; i++) {
+                    hash = 31 * hash + segment.array[i];
+                }
+                offset += segment.count;
+            }
+        } catch (BadLocationException ble) {
+            // Not possible, the range is within the content
+        }
+        return hash;
+    }
+
+    // Undo and redo of content edits also come through insertString() and
+    // remove().
+    public UndoableEdit insertString( int where, String str ) throws BadLocationException {
+        UndoableEdit edit = super.insertString( where, str );
+        for (int i=0; i<str.length(); i++) {
+            checksum += charChecksum( str.charAt( i ) );
+        }
+        generation++;
+        return edit;
+    }
+
+    public UndoableEdit remove( int where, int nitems ) throws BadLocationException {
+        long removed = 0;
+        Segment segment = new Segment();
+        segment.setPartialReturn( true );
+        int offset = where;
+        while ( offset < where + nitems ) {
+            getChars( offset, where + nitems - offset, segment );
+            for (int i = segment.offset; i < segment.offset + segment.count; i++) {
+                removed += charChecksum( segment.array[i] );
+            }
+            offset += segment.count;
+        }
+        UndoableEdit edit = super.remove( where, nitems );
+        checksum -= removed;
+        generation++;
+        return edit;
+    }
+
+    // charChecksum() - Checksum term for one character.  Multiplying by a
+    //   large odd constant spreads the bits, so different characters rarely
+    //   add up to the same sum.
+    private static long charChecksum( char ch ) {
+        long h = (ch + 1) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+
+//  ---------------------------------------------
+
+    private long generation = 0;
+    // The content starts with the implied newline at the end
+    private long checksum = charChecksum( '\n' );
+}
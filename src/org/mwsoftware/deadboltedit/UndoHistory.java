@@ -0,0 +1,291 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * UndoHistory.java - Undo manager with a memory budget.                    *
+ *                                                                          *
+ * Document edits come one per typed character.  Typing is grouped into     *
+ * one undo step per word: characters typed one after another, each         *
+ * within COALESCE_MS of the last, up to the start of the next word.        *
+ * Backspace and Delete key runs are grouped the same way.  Anything else   *
+ * (paste, Replace All, a click elsewhere and typing there) starts a new    *
+ * step.                                                                    *
+ *                                                                          *
+ * The history is limited by the memory its edits hold, not by the number   *
+ * of steps: about two bytes per character inserted or removed, plus        *
+ * EDIT_OVERHEAD_BYTES per edit.  The oldest steps are dropped to stay      *
+ * under the limit, but the last one is always kept, however large.         *
+ *                                                                          *
+ * With setSpilling() on, the documents keep the text of large edits in an  *
+ * UndoSpillFile on disk.  Those edits count only EDIT_OVERHEAD_BYTES       *
+ * against the memory limit, and their text against a separate limit for    *
+ * the file (setMaxSpillBytes()).                                           *
+ *                                                                          *
+ * Usage:                                                                   *
+ *     UndoHistory undoHistory = new UndoHistory();                         *
+ *     undoHistory.setMaxBytes( 4 * 1024 * 1024 );                          *
+ *     doc.addUndoableEditListener( undoHistory );                          *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+class UndoHistory extends UndoManager {
+
+    //   --- Constants, package scope ---
+    protected static final long DEFAULT_MAX_BYTES = 4L * 1024 * 1024;
+    protected static final long COALESCE_MS = 1000;         // Max pause within a step
+    protected static final int EDIT_OVERHEAD_BYTES = 160;   // Event, element and content edits
+    protected static final long DEFAULT_MAX_SPILL_BYTES = 256L * 1024 * 1024;
+    //   --- End Constants ---
+
+    public UndoHistory() {
+        setLimit( Integer.MAX_VALUE );      // Limited by size instead
+    }
+
+    // setMaxBytes() - Memory budget for the history, oldest steps dropped first
+    public synchronized void setMaxBytes( long maxBytes ) {
+        this.maxBytes = maxBytes;
+        trimForBytes();
+    }
+
+    // getByteSize() - Estimated memory held by the history
+    public synchronized long getByteSize() {
+        return byteSize;
+    }
+
+    // setSpilling() - Whether the documents spill large edits to disk, see
+    //   PieceTableContent.setUndoSpillFile().  For edits added from now on.
+    public synchronized void setSpilling( boolean spilling ) {
+        this.spilling = spilling;
+    }
+
+    // setMaxSpillBytes() - Budget for the text of spilled edits
+    public synchronized void setMaxSpillBytes( long maxSpillBytes ) {
+        this.maxSpillBytes = maxSpillBytes;
+        trimForBytes();
+    }
+
+    @Override
+    public void undoableEditHappened( UndoableEditEvent e ) {
+        addEdit( new EditGroup( e.getEdit(), System.currentTimeMillis(), spilling ) );
+    }
+
+    // Edits that can't be redone any more are trimmed before the new one is
+    // added, or merged into the last step.
+    @Override
+    public synchronized boolean addEdit( UndoableEdit anEdit ) {
+        boolean added = super.addEdit( anEdit );
+        if ( added ) {
+            byteSize += byteSize( anEdit );
+            spillBytes += spillBytes( anEdit );
+            trimForBytes();
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized void discardAllEdits() {
+        super.discardAllEdits();
+        byteSize = 0;
+        spillBytes = 0;
+    }
+
+    @Override
+    protected void trimEdits( int from, int to ) {
+        for (int i = from; i <= to; i++) {
+            byteSize -= byteSize( edits.elementAt( i ) );
+            spillBytes -= spillBytes( edits.elementAt( i ) );
+        }
+        super.trimEdits( from, to );
+    }
+
+    // trimForBytes() - Drop the oldest steps until the history is under
+    //   budget, keeping the step Undo would undo next
+    private void trimForBytes() {
+        while ( (byteSize > maxBytes || spillBytes > maxSpillBytes) && edits.size() > 1 ) {
+            UndoableEdit next = editToBeUndone();
+            if ( next == null || next == edits.elementAt( 0 ) ) {
+                break;
+            }
+            trimEdits( 0, 0 );
+        }
+    }
+
+    private static long byteSize( UndoableEdit edit ) {
+        if ( edit instanceof EditGroup ) {
+            return ((EditGroup) edit).byteSize;
+        }
+        return EDIT_OVERHEAD_BYTES;
+    }
+
+    private static long spillBytes( UndoableEdit edit ) {
+        if ( edit instanceof EditGroup ) {
+            return ((EditGroup) edit).spillBytes;
+        }
+        return 0;
+    }
+
+    // EditGroup - One undo step: a Document edit and the typing that
+    //   continued it.  Ended when created, it grows through addEdit(), which
+    //   UndoManager calls with each new edit while this is the last one.
+    private static class EditGroup extends CompoundEdit {
+
+        EditGroup( UndoableEdit edit, long time, boolean spilling ) {
+            edits.add( edit );
+            end();
+            byteSize = EDIT_OVERHEAD_BYTES;
+            lastTime = time;
+            if ( edit instanceof CompoundDocumentEdit ) {
+                CompoundDocumentEdit ce = (CompoundDocumentEdit) edit;
+                long spillableBytes = spilling ? 2L * ce.spillableLength : 0;
+                spillBytes = spillableBytes;
+                byteSize += 2L * ce.textLength - spillableBytes;
+            }
+            if ( edit instanceof DocumentEvent ) {
+                DocumentEvent de = (DocumentEvent) edit;
+                long textBytes = 2L * de.getLength();
+                if ( spilling && UndoSpillFile.spillable( de.getLength() ) ) {
+                    spillBytes = textBytes;
+                }
+                else {
+                    byteSize += textBytes;
+                }
+                type = de.getType();
+                lastOffset = de.getOffset();
+                typing = (de.getLength() == 1);
+                if ( typing && type == DocumentEvent.EventType.INSERT ) {
+                    lastChar = charAt( de );
+                }
+            }
+        }
+
+        @Override
+        public boolean addEdit( UndoableEdit anEdit ) {
+            if ( !(anEdit instanceof EditGroup) || !continuedBy( (EditGroup) anEdit ) ) {
+                return false;
+            }
+            EditGroup next = (EditGroup) anEdit;
+            edits.addAll( next.edits );
+            byteSize += next.byteSize;
+            spillBytes += next.spillBytes;
+            lastTime = next.lastTime;
+            lastOffset = next.lastOffset;
+            lastChar = next.lastChar;
+            return true;
+        }
+
+        @Override
+        public void undo() {
+            super.undo();
+            closed = true;      // Typing after an undo is a new step
+        }
+
+        // continuedBy() - next is one more character typed (or deleted) right
+        //   after this group's last one, soon enough, and not a new word
+        private boolean continuedBy( EditGroup next ) {
+            if ( closed || !typing || !next.typing || next.type != type
+                    || next.lastTime - lastTime > COALESCE_MS ) {
+                return false;
+            }
+            if ( type == DocumentEvent.EventType.INSERT ) {
+                return next.lastOffset == lastOffset + 1
+                    && !(Character.isWhitespace( lastChar ) && !Character.isWhitespace( next.lastChar ));
+            }
+            if ( type == DocumentEvent.EventType.REMOVE ) {
+                // Backspace moves back, Delete stays put
+                return next.lastOffset == lastOffset - 1 || next.lastOffset == lastOffset;
+            }
+            return false;
+        }
+
+        private static char charAt( DocumentEvent de ) {
+            try {
+                return de.getDocument().getText( de.getOffset(), 1 ).charAt( 0 );
+            } catch (BadLocationException ble) {
+                return ' ';
+            }
+        }
+
+        private long byteSize;
+        private long spillBytes = 0;
+        private long lastTime;
+        private DocumentEvent.EventType type;
+        private int lastOffset;         // Of the last character typed or deleted
+        private char lastChar;          // Last character typed
+        private boolean typing;         // Single character edits only
+        private boolean closed = false;
+    }
+
+    // CompoundDocumentEdit - Several Document edits made as one, e.g. by
+    //   Replace All, to be undone in one step.  The caller collects the
+    //   edits, calls end(), and passes this to the Document's
+    //   UndoableEditListeners.  Its size is counted like theirs.
+    static class CompoundDocumentEdit extends CompoundEdit {
+
+        CompoundDocumentEdit( String presentationName ) {
+            this.presentationName = presentationName;
+        }
+
+        @Override
+        public boolean addEdit( UndoableEdit anEdit ) {
+            boolean added = super.addEdit( anEdit );
+            if ( added && anEdit instanceof DocumentEvent ) {
+                int length = ((DocumentEvent) anEdit).getLength();
+                textLength += length;
+                if ( UndoSpillFile.spillable( length ) ) {
+                    spillableLength += length;
+                }
+            }
+            return added;
+        }
+
+        @Override
+        public String getPresentationName() {
+            return presentationName;
+        }
+
+        @Override
+        public String getUndoPresentationName() {
+            return "Undo " + presentationName;
+        }
+
+        @Override
+        public String getRedoPresentationName() {
+            return "Redo " + presentationName;
+        }
+
+        private final String presentationName;
+        private long textLength = 0;        // Chars inserted and removed
+        private long spillableLength = 0;   // Of those, in edits large enough to spill
+    }
+
+//  ---------------------------------------------
+
+    private long maxBytes = DEFAULT_MAX_BYTES;
+    private long byteSize = 0;
+    private boolean spilling = false;
+    private long maxSpillBytes = DEFAULT_MAX_SPILL_BYTES;
+    private long spillBytes = 0;
+}
@@ -0,0 +1,297 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * UndoSpillFile.java - Encrypted temp file for the text of old undo edits. *
+ *                                                                          *
+ * The undo edits of a PieceTableContent hold the text they removed, so     *
+ * deep undo history of large edits can take as much heap as the document.  *
+ * Texts of at least SPILL_MIN_CHARS are held here instead: the most        *
+ * recent HEAP_CHARS chars of them stay in memory, older ones are written   *
+ * to a temp file and read back when the edit is undone or redone.          *
+ *                                                                          *
+ * Records are encrypted with AES-GCM under a random key that exists only   *
+ * in memory, for this file only.  The IV is the record number, which is    *
+ * never reused under a key, and lets compact() move records as they are.   *
+ * delete() overwrites and deletes the file and forgets the key; the next   *
+ * spill starts a new file with a new key.                                  *
+ *                                                                          *
+ * If the file can't be written the text just stays in memory.  If it       *
+ * can't be read back (deleted, changed) take() throws IOException.         *
+ *                                                                          *
+ * Usage:                                                                   *
+ *     UndoSpillFile spill = new UndoSpillFile();                           *
+ *     UndoSpillFile.Payload p = spill.hold( removedText );                 *
+ *     ...                                                                  *
+ *     String text = spill.take( p );          // Undo                      *
+ *     spill.delete();                          // History cleared          *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+
+class UndoSpillFile {
+
+    //   --- Constants, package scope ---
+    protected static final int SPILL_MIN_CHARS = 4 * 1024;     // Smaller texts stay in the edit
+    protected static final long HEAP_CHARS = 1024 * 1024;      // Most recent texts kept in memory
+    protected static final int WIPE_BLOCK_SIZE = 64 * 1024;
+    // The file is compacted when released records take more than half of it,
+    // and it's at least this large
+    protected static final long COMPACT_MIN_BYTES = 16L * 1024 * 1024;
+    //
+    private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+    private static final int IV_LENGTH = 12;
+    private static final int TAG_LENGTH = 16;
+    //   --- End Constants ---
+
+    // spillable() - Texts this long are held in a Payload
+    public static boolean spillable( int length ) {
+        return length >= SPILL_MIN_CHARS;
+    }
+
+    // hold() - Keep text for an undo edit.  Older texts are spilled to the
+    //   file once the ones in memory add up to more than HEAP_CHARS.
+    public synchronized Payload hold( String text ) {
+        Payload payload = new Payload( text );
+        inMemory.add( payload );
+        inMemoryChars += text.length();
+        spillOldest();
+        return payload;
+    }
+
+    // take() - The text of a Payload, which is released
+    public synchronized String take( Payload payload ) throws IOException {
+        String text = payload.text;
+        if ( text == null && payload.record >= 0 ) {
+            text = readRecord( payload );
+        }
+        release( payload );
+        return text;
+    }
+
+    // release() - The edit holding payload is gone, its text isn't needed
+    public synchronized void release( Payload payload ) {
+        if ( payload.text != null ) {
+            if ( inMemory.remove( payload ) ) {
+                inMemoryChars -= payload.text.length();
+            }
+            payload.text = null;
+        }
+        else if ( payload.record >= 0 && spilled.remove( payload ) ) {
+            liveBytes -= payload.fileLength;
+            if ( spilled.isEmpty() ) {
+                wipe();         // Nothing to read back, start the file over
+            }
+            else if ( fileEnd >= COMPACT_MIN_BYTES && fileEnd > 2 * liveBytes ) {
+                compact();
+            }
+        }
+        payload.record = -1;
+    }
+
+    // getSpilledBytes() - Size of the file, including released records
+    public synchronized long getSpilledBytes() {
+        return fileEnd;
+    }
+
+    // delete() - Overwrite and delete the file, and forget its key.  Payloads
+    //   spilled before can't be read back.
+    public synchronized void delete() {
+        if ( file != null ) {
+            wipe();
+            try {
+                raf.close();
+            } catch (IOException ioe) {
+                // Closing, nothing to do
+            }
+            if ( !file.delete() ) {
+                System.err.println("Warning: Cannot delete undo temp file " + file.getPath());
+            }
+        }
+        file = null;
+        raf = null;
+        key = null;
+        nextRecord = 0;
+        spilled.clear();
+        liveBytes = 0;
+        for (Payload payload : inMemory) {
+            payload.text = null;
+        }
+        inMemory.clear();
+        inMemoryChars = 0;
+    }
+
+    // spillOldest() - Write the oldest texts in memory to the file until the
+    //   rest fit in HEAP_CHARS.  The most recent one is always kept.
+    private void spillOldest() {
+        Iterator<Payload> it = inMemory.iterator();
+        while ( inMemoryChars > HEAP_CHARS && inMemory.size() > 1 ) {
+            Payload payload = it.next();
+            try {
+                writeRecord( payload );
+            } catch (IOException ioe) {
+                System.err.println("Warning: Cannot write undo temp file, keeping undo text in memory: " + ioe.getMessage());
+                return;
+            } catch (GeneralSecurityException gse) {
+                System.err.println("Warning: Cannot encrypt undo text, keeping it in memory: " + gse.getMessage());
+                return;
+            }
+            inMemoryChars -= payload.text.length();
+            payload.text = null;
+            it.remove();
+        }
+    }
+
+    // writeRecord() - Append payload's text to the file, encrypted.  Chars
+    //   are written as UTF-16, so any text comes back the same.
+    private void writeRecord( Payload payload ) throws IOException, GeneralSecurityException {
+        if ( file == null ) {
+            open();
+        }
+        String text = payload.text;
+        ByteBuffer plain = ByteBuffer.allocate( 2 * text.length() );
+        plain.asCharBuffer().put( text );
+        long record = nextRecord++;
+        byte[] encrypted = createCipher( Cipher.ENCRYPT_MODE, record ).doFinal( plain.array() );
+        raf.seek( fileEnd );
+        raf.write( encrypted );
+        payload.record = record;
+        payload.filePos = fileEnd;
+        payload.fileLength = encrypted.length;
+        fileEnd += encrypted.length;
+        spilled.add( payload );
+        liveBytes += encrypted.length;
+    }
+
+    private String readRecord( Payload payload ) throws IOException {
+        if ( !spilled.contains( payload ) ) {
+            throw new IOException( "Undo text is no longer available" );
+        }
+        byte[] encrypted = new byte[payload.fileLength];
+        raf.seek( payload.filePos );
+        raf.readFully( encrypted );
+        byte[] plain;
+        try {
+            plain = createCipher( Cipher.DECRYPT_MODE, payload.record ).doFinal( encrypted );
+        } catch (GeneralSecurityException gse) {
+            throw new IOException( "Undo temp file is corrupt", gse );
+        }
+        char[] chars = new char[plain.length / 2];
+        ByteBuffer.wrap( plain ).asCharBuffer().get( chars );
+        return new String( chars );
+    }
+
+    private void open() throws IOException, GeneralSecurityException {
+        key = ChunkCipher.newDataKey();
+        file = File.createTempFile( "DeadboltEdit-undo", ".tmp" );
+        file.deleteOnExit();
+        raf = new RandomAccessFile( file, "rw" );
+        fileEnd = 0;
+    }
+
+    // compact() - Move the records still spilled to the start of the file, in
+    //   the order they were written, and wipe the rest
+    private void compact() {
+        long pos = 0;
+        try {
+            for (Payload payload : spilled) {
+                if ( payload.filePos != pos ) {
+                    byte[] encrypted = new byte[payload.fileLength];
+                    raf.seek( payload.filePos );
+                    raf.readFully( encrypted );
+                    raf.seek( pos );
+                    raf.write( encrypted );
+                    payload.filePos = pos;
+                }
+                pos += payload.fileLength;
+            }
+        } catch (IOException ioe) {
+            System.err.println("Warning: Cannot compact undo temp file: " + ioe.getMessage());
+            return;
+        }
+        wipeFrom( pos );
+    }
+
+    // wipe() - Overwrite the file with zeros and truncate it
+    private void wipe() {
+        wipeFrom( 0 );
+    }
+
+    // wipeFrom() - Overwrite the file from pos to the end with zeros, and
+    //   truncate it at pos
+    private void wipeFrom( long pos ) {
+        if ( raf == null ) {
+            return;
+        }
+        try {
+            byte[] zeros = new byte[WIPE_BLOCK_SIZE];
+            raf.seek( pos );
+            for (long p = pos; p < fileEnd; p += zeros.length) {
+                raf.write( zeros, 0, (int) Math.min( zeros.length, fileEnd - p ) );
+            }
+            raf.getFD().sync();
+            raf.setLength( pos );
+        } catch (IOException ioe) {
+            System.err.println("Warning: Cannot overwrite undo temp file: " + ioe.getMessage());
+        }
+        fileEnd = pos;
+    }
+
+    // createCipher() - Cipher for one record, the IV is the record number
+    private Cipher createCipher( int mode, long record ) throws GeneralSecurityException {
+        byte[] iv = ByteBuffer.allocate( IV_LENGTH ).putLong( IV_LENGTH - 8, record ).array();
+        Cipher cipher = Cipher.getInstance( TRANSFORMATION );
+        cipher.init( mode, key, new GCMParameterSpec( TAG_LENGTH * 8, iv ) );
+        return cipher;
+    }
+
+    // Payload - Text held for an undo edit, in memory or in the file
+    static final class Payload {
+        private String text;            // null once spilled or released
+        private long record = -1;       // Record number, if spilled
+        private long filePos;
+        private int fileLength;
+
+        Payload( String text ) {
+            this.text = text;
+        }
+    }
+
+//  ---------------------------------------------
+
+    private File file = null;
+    private RandomAccessFile raf = null;
+    private SecretKey key = null;       // For this file only, never stored
+    private long fileEnd = 0;
+    private long nextRecord = 0;
+    private LinkedHashSet<Payload> spilled = new LinkedHashSet<Payload>();     // In file order
+    private long liveBytes = 0;         // File bytes of the spilled records
+    private LinkedHashSet<Payload> inMemory = new LinkedHashSet<Payload>();    // Oldest first
+    private long inMemoryChars = 0;
+}
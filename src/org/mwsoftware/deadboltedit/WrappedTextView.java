@@ -0,0 +1,487 @@
+/*
+ ****************************************************************************
+ * Copyright (C) 2026   Michael Wright   All Rights Reserved                *
+ *                                                                          *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.            *
+ *                                                                          *
+ * This Source Code Form is subject to the terms of the                     *
+ * Mozilla Public License, v.2.0. If a copy of the MPL was not              *
+ * distributed with this file, You can obtain one at                        *
+ * http://mozilla.org/MPL/2.0/.                                             *
+ *                                                                          *
+ * This code is distributed in the hope that it will be useful, but WITHOUT *
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or    *
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the Mozilla Public License,       *
+ * version 2 for more details (a copy is included in the LICENSE.txt file   *
+ * that accompanied this code).                                             *
+ *                                                                          *
+ *                                                                          *
+ * WrappedTextView.java - View of a whole Document for line-wrap on.        *
+ *                                                                          *
+ * Stacks the paragraph views like a vertical BoxView, but doesn't wrap     *
+ * every paragraph before the first paint.  When the width changes, each    *
+ * paragraph gets a height estimated from its length, and the paragraphs    *
+ * are wrapped at the new width:                                            *
+ *     - the visible ones when they are painted,                            *
+ *     - any other one when a position in it is needed (caret, find),       *
+ *     - the rest from a Swing Timer, a few ms at a time, starting at the   *
+ *       top of the viewport.  Input events are handled between slices.     *
+ * The viewport is scrolled to keep its top line in place while the         *
+ * estimates above it are replaced.                                         *
+ *                                                                          *
+ * The y of a paragraph is a prefix sum of the heights, kept in a Fenwick   *
+ * tree so one height change doesn't move every following paragraph.        *
+ *                                                                          *
+ * Once every paragraph has been wrapped, the heights are kept by width.    *
+ * Going back to a width (window resize, or line wrap turned off and on     *
+ * with no edits in between, see StyledTextEditorKit) has the exact         *
+ * heights at once.  Any edit drops the heights kept for other widths.      *
+ *                                                                          *
+ ****************************************************************************
+ */
+package org.mwsoftware.deadboltedit;
+
+import java.awt.Container;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Shape;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.swing.JViewport;
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.*;
+
+class WrappedTextView extends CompositeView {
+
+    //   --- Constants, package scope ---
+    protected static final int LAYOUT_SLICE_MS = 8;         // EDT time per slice
+    protected static final int LAYOUT_SLICE_DELAY = 1;      // ms between slices
+    protected static final int SAVED_WIDTHS = 4;            // Complete layouts kept
+    //
+    // Paragraph states
+    protected static final byte ESTIMATED = 0;      // Height is a guess
+    protected static final byte KNOWN = 1;          // Height is exact, view not wrapped at this width
+    protected static final byte WRAPPED = 2;        // View is wrapped at this width
+    //   --- End Constants ---
+
+    WrappedTextView( Element elem, StyledTextEditorKit kit ) {
+        super( elem );
+        this.kit = kit;
+        sliceTimer = new javax.swing.Timer( LAYOUT_SLICE_DELAY, new ActionListener() {
+            @Override
+            public void actionPerformed(ActionEvent e) {
+                layoutSlice();
+            }
+        });
+    }
+
+    // isLayoutPending() - True until every paragraph is wrapped at the width
+    public boolean isLayoutPending() {
+        return pending > 0;
+    }
+
+    @Override
+    public void setParent( View parent ) {
+        if ( parent == null ) {
+            sliceTimer.stop();
+            kit.saveWrapHeights( getDocument(), takeSavedHeights() );
+        }
+        super.setParent( parent );
+        if ( parent != null ) {
+            Map<Integer, int[]> saved = kit.takeWrapHeights( getDocument() );
+            if ( saved != null ) {
+                savedHeights.putAll( saved );
+            }
+        }
+    }
+
+    @Override
+    public void replace( int offset, int length, View[] views ) {
+        replacing = true;       // New children report preference changes
+        try {
+            super.replace( offset, length, views );
+        } finally {
+            replacing = false;
+        }
+        int added = (views == null) ? 0 : views.length;
+        int count = getViewCount();
+        int[] newHeights = new int[Math.max( count, 1 )];
+        byte[] newStates = new byte[newHeights.length];
+        System.arraycopy( heights, 0, newHeights, 0, offset );
+        System.arraycopy( states, 0, newStates, 0, offset );
+        int tail = count - offset - added;
+        System.arraycopy( heights, offset + length, newHeights, offset + added, tail );
+        System.arraycopy( states, offset + length, newStates, offset + added, tail );
+        for (int i = offset; i < offset + length; i++) {
+            if ( states[i] == ESTIMATED ) {
+                pending--;
+            }
+        }
+        for (int i = offset; i < offset + added; i++) {
+            newHeights[i] = estimateHeight( getView( i ) );
+            newStates[i] = ESTIMATED;
+            pending++;
+        }
+        heights = newHeights;
+        states = newStates;
+        buildTree();
+        savedHeights.clear();
+        startSlices();
+    }
+
+    @Override
+    public void preferenceChanged( View child, boolean width, boolean height ) {
+        if ( child != null && child == wrappingChild ) {
+            return;     // wrapChild() takes the new height
+        }
+        if ( child != null && !replacing ) {
+            int index = getViewIndexAtPosition( child.getStartOffset() );
+            if ( index >= 0 && index < states.length && getView( index ) == child ) {
+                if ( states[index] != ESTIMATED ) {
+                    states[index] = ESTIMATED;
+                    pending++;
+                }
+                savedHeights.clear();
+                startSlices();
+            }
+        }
+        super.preferenceChanged( child, width, height );
+    }
+
+    @Override
+    public void changedUpdate( DocumentEvent e, Shape a, ViewFactory f ) {
+        savedHeights.clear();      // Attributes (the font) may have changed
+        super.changedUpdate( e, a, f );
+    }
+
+    @Override
+    public void setSize( float width, float height ) {
+        int newWidth = (int) width;
+        if ( newWidth == layoutWidth ) {
+            return;
+        }
+        if ( pending == 0 && layoutWidth > 0 && getViewCount() > 0 ) {
+            saveHeights( layoutWidth, heights.clone() );
+        }
+        layoutWidth = newWidth;
+        int[] known = savedHeights.remove( Integer.valueOf( newWidth ) );
+        int count = getViewCount();
+        if ( known != null && known.length == heights.length ) {
+            System.arraycopy( known, 0, heights, 0, count );
+            java.util.Arrays.fill( states, 0, count, KNOWN );
+            pending = 0;
+        }
+        else {
+            for (int i = 0; i < count; i++) {
+                heights[i] = estimateHeight( getView( i ) );
+            }
+            java.util.Arrays.fill( states, 0, count, ESTIMATED );
+            pending = count;
+            firstToLayout = getFirstVisibleIndex();
+        }
+        buildTree();
+        startSlices();
+    }
+
+    @Override
+    public float getPreferredSpan( int axis ) {
+        if ( axis == View.Y_AXIS ) {
+            return prefixHeight( getViewCount() );
+        }
+        return Math.max( layoutWidth, 0 );
+    }
+
+    @Override
+    public float getMinimumSpan( int axis ) {
+        if ( axis == View.Y_AXIS ) {
+            return getPreferredSpan( axis );
+        }
+        return 0;
+    }
+
+    @Override
+    public float getMaximumSpan( int axis ) {
+        return Integer.MAX_VALUE;
+    }
+
+    @Override
+    public void paint( Graphics g, Shape a ) {
+        Rectangle alloc = a.getBounds();
+        Rectangle clip = g.getClipBounds();
+        if ( clip == null ) {
+            clip = alloc;
+        }
+        int oldTotal = prefixHeight( getViewCount() );
+        Rectangle childAlloc = new Rectangle();
+        for (int i = getIndexAtY( clip.y - alloc.y ); i < getViewCount(); i++) {
+            wrapChild( i );
+            int y = alloc.y + prefixHeight( i );
+            if ( y >= clip.y + clip.height ) {
+                break;
+            }
+            childAlloc.setBounds( alloc.x, y, alloc.width, heights[i] );
+            if ( childAlloc.intersects( clip ) ) {
+                getView( i ).paint( g, childAlloc );
+            }
+        }
+        if ( prefixHeight( getViewCount() ) != oldTotal ) {
+            super.preferenceChanged( null, false, true );
+        }
+    }
+
+    // Positions need the paragraph wrapped at the current width.  Not done
+    // in childAllocation(), that is also used to forward Document events
+    // before the paragraph has seen them.
+    @Override
+    public Shape modelToView( int pos, Shape a, Position.Bias b ) throws BadLocationException {
+        wrapChildAt( pos );
+        return super.modelToView( pos, a, b );
+    }
+
+    @Override
+    public Shape modelToView( int p0, Position.Bias b0, int p1, Position.Bias b1, Shape a )
+            throws BadLocationException {
+        wrapChildAt( p0 );
+        wrapChildAt( p1 );
+        return super.modelToView( p0, b0, p1, b1, a );
+    }
+
+    private void wrapChildAt( int pos ) {
+        int index = getViewIndexAtPosition( pos );
+        if ( index >= 0 && index < getViewCount() ) {
+            wrapChild( index );
+        }
+    }
+
+    // ---- CompositeView layout ------------------------------------------
+    @Override
+    public Shape getChildAllocation( int index, Shape a ) {
+        if ( a == null ) {
+            return null;        // Update forwarded without an allocation
+        }
+        return super.getChildAllocation( index, a );
+    }
+
+    @Override
+    protected void childAllocation( int index, Rectangle a ) {
+        a.y += prefixHeight( index );
+        a.height = heights[index];
+    }
+
+    @Override
+    protected boolean isBefore( int x, int y, Rectangle alloc ) {
+        return y < alloc.y;
+    }
+
+    @Override
+    protected boolean isAfter( int x, int y, Rectangle alloc ) {
+        return y >= alloc.y + prefixHeight( getViewCount() );
+    }
+
+    @Override
+    protected View getViewAtPoint( int x, int y, Rectangle alloc ) {
+        int index = getIndexAtY( y - alloc.y );
+        wrapChild( index );     // For viewToModel()
+        childAllocation( index, alloc );
+        return getView( index );
+    }
+
+    @Override
+    protected boolean flipEastAndWestAtEnds( int position, Position.Bias bias ) {
+        return false;
+    }
+    // ---- End: CompositeView layout -------------------------------------
+
+    // layoutSlice() - Timer: wrap paragraphs for LAYOUT_SLICE_MS, starting at
+    // the top of the viewport, then from the top of the Document.
+    private void layoutSlice() {
+        Container host = getContainer();
+        if ( host == null || pending == 0 || layoutWidth <= 0 ) {
+            sliceTimer.stop();          // setSize() starts it again
+            return;
+        }
+        int anchor = getFirstVisibleIndex();
+        int anchorY = prefixHeight( anchor );
+        int oldTotal = prefixHeight( getViewCount() );
+        long deadline = System.nanoTime() + LAYOUT_SLICE_MS * 1000000L;
+        AbstractDocument doc = (AbstractDocument) getDocument();
+        doc.readLock();
+        try {
+            int count = getViewCount();
+            int i = Math.min( firstToLayout, count );
+            while ( pending > 0 && System.nanoTime() < deadline ) {
+                if ( i >= count ) {
+                    i = 0;
+                }
+                if ( states[i] == ESTIMATED ) {
+                    wrapChild( i );
+                }
+                i++;
+            }
+            firstToLayout = i;
+        } finally {
+            doc.readUnlock();
+        }
+        if ( pending == 0 ) {
+            sliceTimer.stop();
+        }
+        if ( prefixHeight( getViewCount() ) != oldTotal ) {
+            super.preferenceChanged( null, false, true );
+            keepViewportTop( host, prefixHeight( anchor ) - anchorY );
+        }
+    }
+
+    // keepViewportTop() - Scroll by the change in height above the viewport
+    private void keepViewportTop( Container host, int shift ) {
+        Container parent = host.getParent();
+        if ( shift == 0 || !(parent instanceof JViewport) ) {
+            return;
+        }
+        JViewport viewport = (JViewport) parent;
+        Container scrollPane = viewport.getParent();
+        if ( scrollPane != null ) {
+            scrollPane.validate();      // New view height first
+        }
+        Point position = viewport.getViewPosition();
+        position.y = Math.max( 0, position.y + shift );
+        viewport.setViewPosition( position );
+    }
+
+    // wrapChild() - Wrap a paragraph at the current width if it isn't yet
+    private void wrapChild( int index ) {
+        if ( states[index] == WRAPPED || layoutWidth <= 0 ) {
+            return;
+        }
+        View child = getView( index );
+        wrappingChild = child;
+        try {
+            child.setSize( layoutWidth, heights[index] );
+            int height = (int) Math.ceil( child.getPreferredSpan( View.Y_AXIS ) );
+            if ( height != heights[index] ) {
+                child.setSize( layoutWidth, height );
+                addToTree( index, height - heights[index] );
+                heights[index] = height;
+            }
+        } finally {
+            wrappingChild = null;
+        }
+        if ( states[index] == ESTIMATED ) {
+            pending--;
+        }
+        states[index] = WRAPPED;
+    }
+
+    // estimateHeight() - Rows of average width characters, before wrapping
+    private int estimateHeight( View child ) {
+        Container host = getContainer();
+        if ( host == null ) {
+            return 1;
+        }
+        FontMetrics fm = host.getFontMetrics( host.getFont() );
+        int chars = child.getEndOffset() - child.getStartOffset();
+        int rows = 1;
+        if ( layoutWidth > 0 ) {
+            long rowChars = Math.max( 1, layoutWidth / Math.max( 1, fm.charWidth( 'n' ) ) );
+            rows = (int) Math.max( 1, (chars + rowChars - 1) / rowChars );
+        }
+        return rows * fm.getHeight();
+    }
+
+    // getFirstVisibleIndex() - Paragraph at the top of the visible area
+    private int getFirstVisibleIndex() {
+        Container host = getContainer();
+        if ( !(host instanceof javax.swing.JComponent) ) {
+            return 0;
+        }
+        Rectangle visible = ((javax.swing.JComponent) host).getVisibleRect();
+        return getIndexAtY( visible.y - host.getInsets().top );
+    }
+
+    private void startSlices() {
+        if ( pending > 0 && layoutWidth > 0 && !sliceTimer.isRunning() ) {
+            sliceTimer.start();
+        }
+    }
+
+    private void saveHeights( int width, int[] widthHeights ) {
+        savedHeights.remove( Integer.valueOf( width ) );
+        savedHeights.put( Integer.valueOf( width ), widthHeights );
+        while ( savedHeights.size() > SAVED_WIDTHS ) {
+            savedHeights.remove( savedHeights.keySet().iterator().next() );
+        }
+    }
+
+    // takeSavedHeights() - Complete layouts, including the current one
+    private Map<Integer, int[]> takeSavedHeights() {
+        if ( pending == 0 && layoutWidth > 0 && getViewCount() > 0 ) {
+            saveHeights( layoutWidth, heights.clone() );
+        }
+        Map<Integer, int[]> saved = new LinkedHashMap<Integer, int[]>( savedHeights );
+        savedHeights.clear();
+        return saved;
+    }
+
+    // ---- Fenwick tree of heights ---------------------------------------
+    private void buildTree() {
+        int count = getViewCount();
+        tree = new int[count + 1];
+        for (int i = 1; i <= count; i++) {
+            tree[i] += heights[i - 1];
+            int parent = i + (i & -i);
+            if ( parent <= count ) {
+                tree[parent] += tree[i];
+            }
+        }
+    }
+
+    private void addToTree( int index, int delta ) {
+        for (int i = index + 1; i < tree.length; i += i & -i) {
+            tree[i] += delta;
+        }
+    }
+
+    // prefixHeight() - Sum of the heights of paragraphs 0 .. index-1
+    private int prefixHeight( int index ) {
+        int sum = 0;
+        for (int i = index; i > 0; i -= i & -i) {
+            sum += tree[i];
+        }
+        return sum;
+    }
+
+    // getIndexAtY() - Paragraph containing y (from the top of the view)
+    private int getIndexAtY( int y ) {
+        int count = getViewCount();
+        if ( count == 0 || y <= 0 ) {
+            return 0;
+        }
+        int index = 0;
+        int step = Integer.highestOneBit( count );
+        for (; step > 0; step >>= 1) {
+            if ( index + step <= count && tree[index + step] <= y ) {
+                index += step;
+                y -= tree[index];
+            }
+        }
+        return Math.min( index, count - 1 );
+    }
+    // ---- End: Fenwick tree ---------------------------------------------
+
+    //  ---------------------------------------------
+    private final StyledTextEditorKit kit;
+    private final javax.swing.Timer sliceTimer;
+    private int layoutWidth = -1;
+    private int[] heights = new int[1];     // Per paragraph, see states
+    private byte[] states = new byte[1];    // ESTIMATED, KNOWN or WRAPPED
+    private int[] tree = new int[1];        // Fenwick tree over heights
+    private int pending = 0;                // Paragraphs ESTIMATED
+    private int firstToLayout = 0;          // Where the next slice starts
+    private boolean replacing = false;      // In replace(), states not updated yet
+    private View wrappingChild = null;      // In wrapChild()
+    // Complete layouts by width, least recently used first
+    private final LinkedHashMap<Integer, int[]> savedHeights = new LinkedHashMap<Integer, int[]>();
+}